@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.benchmarks.GraphShapes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * planning without the plan cache of the walker, compare the scores of different sizes to see how planning scales,
+ * lives in the package of the walker to reach the package private planning
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanningBenchmark {
+
+	@Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+	public GraphShapes shape;
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private CompactGraph graph;
+	private TransitionWalker walker;
+	private StateID<Integer> destination;
+
+	@Setup
+	public void setup() {
+		List<Transition<?>> transitions = shape.transitions(size);
+		graph = CompactGraph.of(transitions);
+		walker = TransitionWalker.with(transitions);
+		destination = shape.destinationOf(size);
+	}
+
+	@Benchmark
+	public List<List<Transition<?>>> uncachedPlan() {
+		return ExecutionPlan.of(graph, destination).layers();
+	}
+
+	@Benchmark
+	public DependencyClosure cachedPlan() {
+		return walker.dependenciesOf(destination);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.benchmarks;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * synthetic transition graphs with a single destination
+ */
+public enum GraphShapes {
+	/**
+	 * s0 -> s1 -> ... -> s(n-1)
+	 */
+	CHAIN {
+		@Override
+		public List<Transition<?>> transitions(int size) {
+			List<Transition<?>> ret = new ArrayList<>(size);
+			ret.add(Start.to(state(0)).initializedWith(0));
+			for (int i = 1; i < size; i++) {
+				ret.add(Derive.given(state(i - 1)).state(state(i)).deriveBy(it -> it + 1));
+			}
+			return ret;
+		}
+	},
+	/**
+	 * one start, many derived states, joined pairwise into the destination
+	 */
+	FAN_OUT {
+		@Override
+		public List<Transition<?>> transitions(int size) {
+			int width = Math.max(1, size / 2);
+			List<Transition<?>> ret = new ArrayList<>(size);
+			ret.add(Start.to(state(0)).initializedWith(0));
+			for (int i = 1; i <= width; i++) {
+				ret.add(Derive.given(state(0)).state(state(i)).deriveBy(it -> it + 1));
+			}
+			StateID<Integer> current = state(1);
+			for (int i = 2; i <= width; i++) {
+				StateID<Integer> joined = StateID.of("j" + i, Integer.class);
+				ret.add(Join.given(current).and(state(i)).state(joined).deriveBy(Integer::sum));
+				current = joined;
+			}
+			ret.add(Derive.given(current).state(destination()).deriveBy(it -> it));
+			return ret;
+		}
+	},
+	/**
+	 * stacked diamonds: a -> (b, c) -> d, where d is the a of the next diamond
+	 */
+	DIAMOND {
+		@Override
+		public List<Transition<?>> transitions(int size) {
+			int diamonds = Math.max(1, size / 3);
+			List<Transition<?>> ret = new ArrayList<>(size);
+			ret.add(Start.to(state(0)).initializedWith(0));
+			for (int i = 0; i < diamonds; i++) {
+				StateID<Integer> top = state(3 * i);
+				StateID<Integer> left = state(3 * i + 1);
+				StateID<Integer> right = state(3 * i + 2);
+				ret.add(Derive.given(top).state(left).deriveBy(it -> it + 1));
+				ret.add(Derive.given(top).state(right).deriveBy(it -> it + 2));
+				ret.add(Join.given(left).and(right).state(state(3 * i + 3)).deriveBy(Integer::sum));
+			}
+			ret.add(Derive.given(state(3 * diamonds)).state(destination()).deriveBy(it -> it));
+			return ret;
+		}
+	},
+	/**
+	 * each state depends on one or two random earlier states, all sinks are joined into the destination
+	 */
+	RANDOM_DAG {
+		@Override
+		public List<Transition<?>> transitions(int size) {
+			Random random = new Random(size);
+			List<Transition<?>> ret = new ArrayList<>(size * 2);
+			boolean[] consumed = new boolean[size];
+			ret.add(Start.to(state(0)).initializedWith(0));
+			for (int i = 1; i < size; i++) {
+				int left = random.nextInt(i);
+				consumed[left] = true;
+				if (i > 1 && random.nextBoolean()) {
+					int right = random.nextInt(i);
+					if (right != left) {
+						consumed[right] = true;
+						ret.add(Join.given(state(left)).and(state(right)).state(state(i)).deriveBy(Integer::sum));
+						continue;
+					}
+				}
+				ret.add(Derive.given(state(left)).state(state(i)).deriveBy(it -> it + 1));
+			}
+			StateID<Integer> current = null;
+			for (int i = 0; i < size; i++) {
+				if (!consumed[i]) {
+					if (current == null) {
+						current = state(i);
+					} else {
+						StateID<Integer> joined = StateID.of("j" + i, Integer.class);
+						ret.add(Join.given(current).and(state(i)).state(joined).deriveBy(Integer::sum));
+						current = joined;
+					}
+				}
+			}
+			ret.add(Derive.given(current).state(destination()).deriveBy(it -> it));
+			return ret;
+		}
+	};
+
+	public abstract List<Transition<?>> transitions(int size);
+
+	/**
+	 * same shape as {@link #CHAIN}, but the first state depends on the last one
+	 */
+	static List<Transition<?>> loop(int size) {
+		List<Transition<?>> ret = new ArrayList<>(size);
+		ret.add(Derive.given(state(size - 1)).state(state(0)).deriveBy(it -> it + 1));
+		for (int i = 1; i < size; i++) {
+			ret.add(Derive.given(state(i - 1)).state(state(i)).deriveBy(it -> it + 1));
+		}
+		return ret;
+	}
+
+	public StateID<Integer> destinationOf(int size) {
+		return this == CHAIN ? state(size - 1) : destination();
+	}
+
+	static StateID<Integer> state(int index) {
+		return StateID.of("s" + index, Integer.class);
+	}
+
+	static StateID<Integer> destination() {
+		return StateID.of("destination", Integer.class);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.benchmarks;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * run with `java -jar target/benchmarks.jar -prof gc` to get allocation rates
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalkerBenchmark {
+
+	@Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+	public GraphShapes shape;
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private List<Transition<?>> transitions;
+	private List<Transition<?>> loop;
+	private TransitionWalker walker;
+	private StateID<Integer> destination;
+
+	@Setup
+	public void setup() {
+		transitions = shape.transitions(size);
+		loop = GraphShapes.loop(size);
+		walker = TransitionWalker.with(transitions);
+		destination = shape.destinationOf(size);
+	}
+
+	@Benchmark
+	public TransitionWalker construction() {
+		return TransitionWalker.with(transitions);
+	}
+
+	@Benchmark
+	public void loopDetection(Blackhole blackhole) {
+		try {
+			blackhole.consume(TransitionWalker.with(loop));
+			throw new IllegalStateException("loop not detected");
+		}
+		catch (IllegalArgumentException expected) {
+			blackhole.consume(expected);
+		}
+	}
+
+	@Benchmark
+	public Integer initStateAndClose() {
+		try (TransitionWalker.ReachedState<Integer> state = walker.initState(destination)) {
+			return state.current();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.reverse.graph.TransitionGraph;
+import de.flapdoodle.reverse.instrumentation.Execution;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * composes all transitions into one future, a transition is started when the futures of its sources are done,
+ * blocking transitions are executed with the executor if there is one, without an executor they are executed in the
+ * thread which completed the last source, so independent blocking transitions are executed one after another
+ */
+class AsyncScheduler {
+
+	private final Function<Transition<?>, Set<StateID<?>>> inputs;
+	private final StateSlots stateMap;
+	private final StateLookup lookup;
+	private final List<Collection<NamedTypeAndState<?>>> initializedStates;
+	private final List<Listener> initListener;
+	private final List<Listener> workerListener;
+	private final ExecutionLog log;
+	private final Optional<Executor> executor;
+	private final Optional<Executor> tearDownExecutor;
+
+	private final Map<StateID<?>, CompletableFuture<?>> results = new HashMap<>();
+	private final Set<StateID<?>> failed = Collections.synchronizedSet(new LinkedHashSet<>());
+
+	private AsyncScheduler(Function<Transition<?>, Set<StateID<?>>> inputs, StateSlots stateMap, StateLookup lookup,
+		List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener, ExecutionLog log, Optional<Executor> executor,
+		Optional<Executor> tearDownExecutor) {
+		this.inputs = inputs;
+		this.stateMap = stateMap;
+		this.lookup = lookup;
+		this.initializedStates = initializedStates;
+		this.initListener = initListener;
+		this.workerListener = TransitionWalker.synchronizedListener(initListener);
+		this.log = log;
+		this.executor = executor;
+		this.tearDownExecutor = tearDownExecutor;
+	}
+
+	/**
+	 * @param transitions in dependency order
+	 * @param inputs states which must be reached before a transition is started
+	 */
+	static CompletableFuture<Void> run(List<Transition<?>> transitions, Function<Transition<?>, Set<StateID<?>>> inputs,
+		StateSlots stateMap, StateLookup lookup, List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener,
+		ExecutionLog log, Optional<Executor> executor, Optional<Executor> tearDownExecutor) {
+		return new AsyncScheduler(inputs, stateMap, lookup, initializedStates, initListener, log, executor, tearDownExecutor).run(transitions);
+	}
+
+	private CompletableFuture<Void> run(List<Transition<?>> transitions) {
+		for (Transition<?> transition : transitions) {
+			CompletableFuture<?>[] sources = inputs.apply(transition).stream()
+				.filter(results::containsKey)
+				.map(results::get)
+				.toArray(CompletableFuture<?>[]::new);
+
+			results.put(transition.destination(), CompletableFuture.allOf(sources)
+				.thenCompose(ignore -> start(transition)));
+		}
+
+		CompletableFuture<Void> ret = new CompletableFuture<>();
+		CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+			.whenComplete((ignore, error) -> {
+				if (error == null) {
+					ret.complete(null);
+				} else {
+					try {
+						TransitionWalker.tearDown(initializedStates, initListener, tearDownExecutor, Optional.of(
+							new RuntimeException("rollback after error on transition to " + TransitionGraph.asMessage(failed) +
+								", successful reached:" + TransitionWalker.successStatesAsMessage(initializedStates), unwrap(error)))
+						);
+					}
+					catch (RuntimeException rx) {
+						ret.completeExceptionally(rx);
+					}
+				}
+			});
+		return ret;
+	}
+
+	private <T> CompletableFuture<State<T>> start(Transition<T> transition) {
+		CompletableFuture<State<T>> result;
+		try {
+			if (transition instanceof AsyncTransition) {
+				FlightRecorder.Span span = FlightRecorder.transition(transition);
+				Optional<Instrumented> instrumented = Instrumented.start(workerListener, log, Execution.Phase.TRANSITION, transition.destination());
+				try {
+					result = ((AsyncTransition<T>) transition).resultAsync(lookup.limitedTo(transition.sources())).toCompletableFuture();
+				}
+				catch (RuntimeException rx) {
+					result = new CompletableFuture<>();
+					result.completeExceptionally(rx);
+				}
+				result = result.whenComplete((state, error) -> {
+					span.end(error != null);
+					instrumented.ifPresent(it -> it.end(unwrap(error)));
+				});
+			} else if (executor.isPresent()) {
+				result = CompletableFuture.supplyAsync(() -> TransitionWalker.resolve(lookup, workerListener, log, transition), executor.get());
+			} else {
+				result = CompletableFuture.completedFuture(TransitionWalker.resolve(lookup, workerListener, log, transition));
+			}
+		}
+		catch (RuntimeException rx) {
+			result = new CompletableFuture<>();
+			result.completeExceptionally(rx);
+		}
+
+		return result.whenComplete((state, error) -> {
+			if (error == null) {
+				reached(transition, state);
+			} else {
+				failed.add(transition.destination());
+			}
+		});
+	}
+
+	private <T> void reached(Transition<T> transition, State<T> state) {
+		synchronized (initializedStates) {
+			stateMap.put(transition.destination(), state);
+			initializedStates.add(Collections.singletonList(TransitionWalker.namedTypeAndStateOf(transition, state)));
+		}
+		TransitionWalker.notifyStateReached(workerListener, transition, state);
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		return error instanceof CompletionException && error.getCause() != null
+			? error.getCause()
+			: error;
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import java.util.*;
+
+/**
+ * transition graph with dense int ids for states and transitions and CSR style adjacency arrays,
+ * used for planning instead of the jgrapht graph
+ */
+final class CompactGraph {
+
+	private final StateID<?>[] states;
+	private final Map<StateID<?>, Integer> stateIndex;
+	private final Transition<?>[] transitions;
+
+	// transition index -> state index
+	private final int[] destinationOf;
+	// state index -> transition index, -1 if no transition reaches this state
+	private final int[] producerOf;
+
+	private final int[] sourceOffsets;
+	private final int[] sources;
+
+	private final int[] consumerOffsets;
+	private final int[] consumers;
+
+	private CompactGraph(StateID<?>[] states, Map<StateID<?>, Integer> stateIndex, Transition<?>[] transitions,
+		int[] destinationOf, int[] producerOf, int[] sourceOffsets, int[] sources, int[] consumerOffsets, int[] consumers) {
+		this.states = states;
+		this.stateIndex = stateIndex;
+		this.transitions = transitions;
+		this.destinationOf = destinationOf;
+		this.producerOf = producerOf;
+		this.sourceOffsets = sourceOffsets;
+		this.sources = sources;
+		this.consumerOffsets = consumerOffsets;
+		this.consumers = consumers;
+	}
+
+	int stateCount() {
+		return states.length;
+	}
+
+	int transitionCount() {
+		return transitions.length;
+	}
+
+	boolean contains(StateID<?> state) {
+		return stateIndex.containsKey(state);
+	}
+
+	int indexOf(StateID<?> state) {
+		Integer ret = stateIndex.get(state);
+		return ret != null ? ret : -1;
+	}
+
+	StateID<?> state(int index) {
+		return states[index];
+	}
+
+	List<Transition<?>> transitions() {
+		return Collections.unmodifiableList(Arrays.asList(transitions));
+	}
+
+	Transition<?> transition(int index) {
+		return transitions[index];
+	}
+
+	int destinationOf(int transition) {
+		return destinationOf[transition];
+	}
+
+	int producerOf(int state) {
+		return producerOf[state];
+	}
+
+	int sourcesStart(int transition) {
+		return sourceOffsets[transition];
+	}
+
+	int sourcesEnd(int transition) {
+		return sourceOffsets[transition + 1];
+	}
+
+	int source(int position) {
+		return sources[position];
+	}
+
+	int consumersStart(int state) {
+		return consumerOffsets[state];
+	}
+
+	int consumersEnd(int state) {
+		return consumerOffsets[state + 1];
+	}
+
+	int consumer(int position) {
+		return consumers[position];
+	}
+
+	/**
+	 * @return true if there is no cycle in this graph
+	 */
+	boolean isAcyclic() {
+		int[] missingInputs = new int[states.length + transitions.length];
+		int[] queue = new int[states.length + transitions.length];
+		int head = 0;
+		int tail = 0;
+
+		for (int s = 0; s < states.length; s++) {
+			missingInputs[s] = producerOf[s] == -1 ? 0 : 1;
+			if (missingInputs[s] == 0) queue[tail++] = s;
+		}
+		for (int t = 0; t < transitions.length; t++) {
+			missingInputs[states.length + t] = sourceOffsets[t + 1] - sourceOffsets[t];
+			if (missingInputs[states.length + t] == 0) queue[tail++] = states.length + t;
+		}
+
+		while (head < tail) {
+			int current = queue[head++];
+			if (current < states.length) {
+				for (int i = consumerOffsets[current]; i < consumerOffsets[current + 1]; i++) {
+					int node = states.length + consumers[i];
+					if (--missingInputs[node] == 0) queue[tail++] = node;
+				}
+			} else {
+				int node = destinationOf[current - states.length];
+				if (--missingInputs[node] == 0) queue[tail++] = node;
+			}
+		}
+
+		return tail == queue.length;
+	}
+
+	static CompactGraph of(List<? extends Transition<?>> all) {
+		Map<StateID<?>, Integer> stateIndex = new LinkedHashMap<>();
+		List<StateID<?>> states = new ArrayList<>();
+		Transition<?>[] transitions = all.toArray(new Transition<?>[0]);
+
+		int[] destinationOf = new int[transitions.length];
+		int[] sourceOffsets = new int[transitions.length + 1];
+		List<Integer> sourceList = new ArrayList<>();
+
+		for (int t = 0; t < transitions.length; t++) {
+			Transition<?> transition = transitions[t];
+			destinationOf[t] = indexOf(stateIndex, states, transition.destination());
+			sourceOffsets[t] = sourceList.size();
+			for (StateID<?> source : transition.sources()) {
+				sourceList.add(indexOf(stateIndex, states, source));
+			}
+		}
+		sourceOffsets[transitions.length] = sourceList.size();
+
+		int[] sources = sourceList.stream().mapToInt(Integer::intValue).toArray();
+
+		int[] producerOf = new int[states.size()];
+		Arrays.fill(producerOf, -1);
+		for (int t = 0; t < transitions.length; t++) {
+			producerOf[destinationOf[t]] = t;
+		}
+
+		int[] consumerOffsets = new int[states.size() + 1];
+		for (int source : sources) {
+			consumerOffsets[source + 1]++;
+		}
+		for (int s = 0; s < states.size(); s++) {
+			consumerOffsets[s + 1] += consumerOffsets[s];
+		}
+		int[] consumers = new int[sources.length];
+		int[] fill = Arrays.copyOf(consumerOffsets, states.size());
+		for (int t = 0; t < transitions.length; t++) {
+			for (int i = sourceOffsets[t]; i < sourceOffsets[t + 1]; i++) {
+				consumers[fill[sources[i]]++] = t;
+			}
+		}
+
+		return new CompactGraph(states.toArray(new StateID<?>[0]), Collections.unmodifiableMap(stateIndex), transitions,
+			destinationOf, producerOf, sourceOffsets, sources, consumerOffsets, consumers);
+	}
+
+	private static int indexOf(Map<StateID<?>, Integer> stateIndex, List<StateID<?>> states, StateID<?> state) {
+		Integer ret = stateIndex.get(state);
+		if (ret == null) {
+			ret = states.size();
+			stateIndex.put(state, ret);
+			states.add(state);
+		}
+		return ret;
+	}
+}
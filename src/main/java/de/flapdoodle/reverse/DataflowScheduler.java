@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.reverse.graph.TransitionGraph;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * dispatches each transition as soon as all of its sources are reached,
+ * all bookkeeping and listener calls happen in the calling thread
+ */
+class DataflowScheduler {
+
+	private final Function<Transition<?>, Set<StateID<?>>> inputs;
+	private final StateSlots stateMap;
+	private final StateLookup lookup;
+	private final Optional<EagerRelease> release;
+	private final List<Collection<NamedTypeAndState<?>>> initializedStates;
+	private final List<Listener> initListener;
+	private final List<Listener> workerListener;
+	private final ExecutionLog log;
+	private final Executor executor;
+	private final Optional<Executor> tearDownExecutor;
+
+	private final Map<StateID<?>, List<Transition<?>>> consumers = new HashMap<>();
+	private final Map<Transition<?>, Integer> missingInputs = new IdentityHashMap<>();
+	private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+
+	private DataflowScheduler(Function<Transition<?>, Set<StateID<?>>> inputs, StateSlots stateMap, StateLookup lookup,
+		Optional<EagerRelease> release, List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener, ExecutionLog log, Executor executor,
+		Optional<Executor> tearDownExecutor) {
+		this.inputs = inputs;
+		this.stateMap = stateMap;
+		this.lookup = lookup;
+		this.release = release;
+		this.initializedStates = initializedStates;
+		this.initListener = initListener;
+		this.workerListener = TransitionWalker.synchronizedListener(initListener);
+		this.log = log;
+		this.executor = executor;
+		this.tearDownExecutor = tearDownExecutor;
+	}
+
+	/**
+	 * @param inputs states which must be reached before a transition is started
+	 */
+	static void run(List<Transition<?>> transitions, Function<Transition<?>, Set<StateID<?>>> inputs, StateSlots stateMap,
+		StateLookup lookup, Optional<EagerRelease> release, List<Collection<NamedTypeAndState<?>>> initializedStates,
+		List<Listener> initListener, ExecutionLog log, Executor executor, Optional<Executor> tearDownExecutor) {
+		new DataflowScheduler(inputs, stateMap, lookup, release, initializedStates, initListener, log, executor, tearDownExecutor).run(transitions);
+	}
+
+	private void run(List<Transition<?>> transitions) {
+		Set<StateID<?>> produced = transitions.stream()
+			.map(Transition::destination)
+			.collect(Collectors.toSet());
+
+		List<Transition<?>> ready = new ArrayList<>();
+		for (Transition<?> transition : transitions) {
+			int missing = 0;
+			for (StateID<?> source : inputs.apply(transition)) {
+				if (!stateMap.contains(source)) {
+					Preconditions.checkArgument(produced.contains(source), "missing transitions: %s", TransitionGraph.asMessage(source));
+					consumers.computeIfAbsent(source, id -> new ArrayList<>()).add(transition);
+					missing++;
+				}
+			}
+			if (missing == 0) {
+				ready.add(transition);
+			} else {
+				missingInputs.put(transition, missing);
+			}
+		}
+
+		int running = 0;
+		for (Transition<?> transition : ready) {
+			submit(transition);
+			running++;
+		}
+
+		RuntimeException error = null;
+		Set<StateID<?>> failed = new LinkedHashSet<>();
+		boolean interrupted = false;
+
+		while (running > 0) {
+			Completion completion;
+			try {
+				completion = completions.take();
+			}
+			catch (InterruptedException ix) {
+				// running transitions must finish before we can roll back
+				interrupted = true;
+				continue;
+			}
+			running--;
+
+			if (completion.error != null) {
+				failed.add(completion.transition.destination());
+				if (error == null) {
+					error = completion.error;
+				} else {
+					error.addSuppressed(completion.error);
+				}
+			} else {
+				reached(completion.transition, completion.state);
+				if (error == null && release.isPresent()) {
+					try {
+						release.get().completed(completion.transition);
+					}
+					catch (RuntimeException rx) {
+						error = rx;
+					}
+				}
+				if (error == null) {
+					for (Transition<?> consumer : consumers.getOrDefault(completion.transition.destination(), Collections.emptyList())) {
+						int missing = missingInputs.get(consumer) - 1;
+						if (missing == 0) {
+							missingInputs.remove(consumer);
+							submit(consumer);
+							running++;
+						} else {
+							missingInputs.put(consumer, missing);
+						}
+					}
+				}
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (error != null) {
+			TransitionWalker.tearDown(initializedStates, initListener, tearDownExecutor, Optional.of(
+				new RuntimeException("rollback after error on transition to " + TransitionGraph.asMessage(failed) +
+					", successful reached:" + TransitionWalker.successStatesAsMessage(initializedStates), error))
+			);
+		}
+	}
+
+	private void submit(Transition<?> transition) {
+		try {
+			executor.execute(() -> {
+				try {
+					completions.add(new Completion(transition, TransitionWalker.resolve(lookup, workerListener, log, transition), null));
+				}
+				catch (RuntimeException rx) {
+					completions.add(new Completion(transition, null, rx));
+				}
+				catch (Throwable tx) {
+					completions.add(new Completion(transition, null, new RuntimeException(tx)));
+					throw tx;
+				}
+			});
+		}
+		catch (RuntimeException rx) {
+			completions.add(new Completion(transition, null, rx));
+		}
+	}
+
+	private void reached(Transition<?> transition, State<?> state) {
+		synchronized (initializedStates) {
+			stateMap.put(transition.destination(), state);
+			initializedStates.add(Collections.singletonList(TransitionWalker.namedTypeAndStateOf(transition, state)));
+		}
+		TransitionWalker.notifyStateReached(workerListener, transition, state);
+	}
+
+	private static class Completion {
+		private final Transition<?> transition;
+		private final State<?> state;
+		private final RuntimeException error;
+
+		private Completion(Transition<?> transition, State<?> state, RuntimeException error) {
+			this.transition = transition;
+			this.state = state;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.graph.StateVertex;
+import de.flapdoodle.reverse.graph.TransitionVertex;
+import de.flapdoodle.reverse.graph.Vertex;
+import org.immutables.value.Value;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * destination and all states and transitions it depends on, collected with one reverse traversal
+ */
+@Value.Immutable
+public abstract class DependencyClosure {
+	@Value.Parameter
+	public abstract StateID<?> destination();
+
+	@Value.Parameter
+	public abstract Set<StateID<?>> states();
+
+	@Value.Parameter
+	public abstract Set<Transition<?>> transitions();
+
+	public boolean contains(Vertex vertex) {
+		return Vertex.asEither(vertex)
+			.mapLeft(StateVertex::stateId)
+			.mapLeft(states()::contains)
+			.mapRight(TransitionVertex::transition)
+			.mapRight(transitions()::contains)
+			.map(it -> it, it -> it);
+	}
+
+	static DependencyClosure of(CompactGraph graph, StateID<?> destination) {
+		boolean[] states = new boolean[graph.stateCount()];
+		boolean[] transitions = new boolean[graph.transitionCount()];
+		closure(graph, graph.indexOf(destination), states, transitions);
+		return of(graph, destination, states, transitions);
+	}
+
+	static DependencyClosure of(CompactGraph graph, StateID<?> destination, boolean[] states, boolean[] transitions) {
+		Set<StateID<?>> stateSet = new LinkedHashSet<>();
+		for (int s = 0; s < states.length; s++) {
+			if (states[s]) stateSet.add(graph.state(s));
+		}
+		Set<Transition<?>> transitionSet = new LinkedHashSet<>();
+		for (int t = 0; t < transitions.length; t++) {
+			if (transitions[t]) transitionSet.add(graph.transition(t));
+		}
+		return ImmutableDependencyClosure.of(destination, stateSet, transitionSet);
+	}
+
+	static void closure(CompactGraph graph, int destination, boolean[] states, boolean[] transitions) {
+		closure(graph, destination, states, transitions, new boolean[graph.stateCount()]);
+	}
+
+	/**
+	 * states marked as lazy are collected, but not what they depend on (unless it is the destination)
+	 */
+	static void closure(CompactGraph graph, int destination, boolean[] states, boolean[] transitions, boolean[] lazy) {
+		int[] stack = new int[graph.stateCount()];
+		int size = 0;
+
+		states[destination] = true;
+		stack[size++] = destination;
+
+		while (size > 0) {
+			int state = stack[--size];
+			int producer = lazy[state] && state != destination ? -1 : graph.producerOf(state);
+			if (producer != -1 && !transitions[producer]) {
+				transitions[producer] = true;
+				for (int i = graph.sourcesStart(producer); i < graph.sourcesEnd(producer); i++) {
+					int source = graph.source(i);
+					if (!states[source]) {
+						states[source] = true;
+						stack[size++] = source;
+					}
+				}
+			}
+		}
+	}
+}
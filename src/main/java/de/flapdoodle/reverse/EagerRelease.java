@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * counts the pending consumers of each state reached by one init call,
+ * a state selected by the policy is torn down when its count drops to zero
+ */
+final class EagerRelease {
+	private final ReleasePolicy policy;
+	private final Function<Transition<?>, Set<StateID<?>>> inputs;
+	private final StateSlots stateMap;
+	private final List<Collection<NamedTypeAndState<?>>> initializedStates;
+	private final List<Listener> initListener;
+	private final Map<StateID<?>, Integer> pendingConsumers = new HashMap<>();
+
+	private EagerRelease(ReleasePolicy policy, Function<Transition<?>, Set<StateID<?>>> inputs, StateSlots stateMap,
+		List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener) {
+		this.policy = policy;
+		this.inputs = inputs;
+		this.stateMap = stateMap;
+		this.initializedStates = initializedStates;
+		this.initListener = initListener;
+	}
+
+	/**
+	 * only states produced by these transitions are released, the destinations are kept
+	 */
+	static Optional<EagerRelease> of(Optional<ReleasePolicy> policy, Set<StateID<?>> destinations, List<Transition<?>> transitions,
+		Function<Transition<?>, Set<StateID<?>>> inputs, StateSlots stateMap, List<Collection<NamedTypeAndState<?>>> initializedStates,
+		List<Listener> initListener) {
+		if (!policy.isPresent()) {
+			return Optional.empty();
+		}
+
+		EagerRelease ret = new EagerRelease(policy.get(), inputs, stateMap, initializedStates, initListener);
+		for (Transition<?> transition : transitions) {
+			if (!destinations.contains(transition.destination()) && policy.get().releaseEarly(transition.destination())) {
+				ret.pendingConsumers.put(transition.destination(), 0);
+			}
+		}
+		for (Transition<?> transition : transitions) {
+			inputs.apply(transition).forEach(input -> ret.pendingConsumers.computeIfPresent(input, (id, count) -> count + 1));
+		}
+		return Optional.of(ret);
+	}
+
+	/**
+	 * must be called after the state of this transition was added to the initialized states
+	 */
+	synchronized void completed(Transition<?> transition) {
+		for (StateID<?> input : inputs.apply(transition)) {
+			Integer pending = pendingConsumers.computeIfPresent(input, (id, count) -> count - 1);
+			if (pending != null && pending == 0) {
+				pendingConsumers.remove(input);
+				release(input);
+			}
+		}
+	}
+
+	private void release(StateID<?> id) {
+		NamedTypeAndState<?> released = null;
+		synchronized (initializedStates) {
+			ListIterator<Collection<NamedTypeAndState<?>>> iterator = initializedStates.listIterator();
+			while (released == null && iterator.hasNext()) {
+				Collection<NamedTypeAndState<?>> layer = iterator.next();
+				List<NamedTypeAndState<?>> kept = new ArrayList<>(layer.size());
+				for (NamedTypeAndState<?> it : layer) {
+					if (it.type().equals(id)) {
+						released = it;
+					} else {
+						kept.add(it);
+					}
+				}
+				if (released != null) {
+					if (kept.isEmpty()) {
+						iterator.remove();
+					} else {
+						iterator.set(kept);
+					}
+				}
+			}
+			if (released != null) {
+				stateMap.remove(id);
+			}
+		}
+
+		if (released != null) {
+			TransitionWalker.notifyListener(initListener, released);
+			TransitionWalker.tearDown(initListener, released);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.instrumentation.Execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * transitions executed by one init run, in order of completion
+ */
+final class ExecutionLog {
+
+	static final ExecutionLog NONE = new ExecutionLog(false);
+
+	private final boolean enabled;
+	private final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+
+	private ExecutionLog(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	static ExecutionLog create() {
+		return new ExecutionLog(true);
+	}
+
+	boolean enabled() {
+		return enabled;
+	}
+
+	void add(Execution execution) {
+		if (enabled) {
+			executions.add(execution);
+		}
+	}
+
+	List<Execution> executions() {
+		synchronized (executions) {
+			return Collections.unmodifiableList(new ArrayList<>(executions));
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+import org.immutables.value.Value;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * everything initState needs to know about one or more destinations, computed once
+ */
+@Value.Immutable
+abstract class ExecutionPlan {
+	@Value.Parameter
+	protected abstract Set<StateID<?>> destinations();
+
+	/**
+	 * union of the dependency closures of all destinations
+	 */
+	@Value.Parameter
+	protected abstract Set<StateID<?>> states();
+
+	@Value.Parameter
+	protected abstract Set<Transition<?>> transitions();
+
+	/**
+	 * only for plans with one destination
+	 */
+	@Value.Lazy
+	protected DependencyClosure closure() {
+		return ImmutableDependencyClosure.of(destination(), states(), transitions());
+	}
+
+	protected StateID<?> destination() {
+		Preconditions.checkArgument(destinations().size() == 1, "more than one destination: %s", destinations());
+		return destinations().iterator().next();
+	}
+
+	/**
+	 * states needed but not provided by any transition
+	 */
+	@Value.Parameter
+	protected abstract Set<StateID<?>> sources();
+
+	/**
+	 * transitions in dependency order, transitions in one layer are independent
+	 */
+	@Value.Parameter
+	protected abstract List<List<Transition<?>>> layers();
+
+	/**
+	 * states initialized on first access, their transitions are not part of the layers
+	 */
+	@Value.Parameter
+	protected abstract Set<StateID<?>> lazyStates();
+
+	/**
+	 * eagerly reached states each lazy state depends on
+	 */
+	@Value.Parameter
+	protected abstract Map<StateID<?>, Set<StateID<?>>> lazyDependencies();
+
+	/**
+	 * states which must be reached before the transition is started, lazy sources are replaced by what they depend on
+	 */
+	protected Set<StateID<?>> inputsOf(Transition<?> transition) {
+		if (lazyStates().isEmpty()) {
+			return transition.sources();
+		}
+		Set<StateID<?>> ret = new LinkedHashSet<>();
+		for (StateID<?> source : transition.sources()) {
+			Set<StateID<?>> dependencies = lazyDependencies().get(source);
+			if (dependencies != null) {
+				ret.addAll(dependencies);
+			} else {
+				ret.add(source);
+			}
+		}
+		return ret;
+	}
+
+	protected Set<StateID<?>> missingSources(Predicate<StateID<?>> isPresent) {
+		return sources().stream()
+			.filter(isPresent.negate())
+			.collect(Collectors.toSet());
+	}
+
+	static ExecutionPlan of(CompactGraph graph, StateID<?> destination) {
+		return of(graph, Collections.singleton(destination), Collections.emptySet());
+	}
+
+	/**
+	 * layers are computed with all transitions, so that consumers of a lazy state are started after the eager
+	 * part of its dependencies
+	 */
+	static ExecutionPlan of(CompactGraph graph, Set<StateID<?>> destinations, Set<StateID<?>> lazy) {
+		boolean[] states = new boolean[graph.stateCount()];
+		boolean[] transitions = new boolean[graph.transitionCount()];
+		destinations.forEach(dest -> DependencyClosure.closure(graph, graph.indexOf(dest), states, transitions));
+
+		boolean[] eagerStates = states;
+		boolean[] eagerTransitions = transitions;
+		if (!lazy.isEmpty()) {
+			boolean[] lazyStates = new boolean[graph.stateCount()];
+			lazy.forEach(id -> {
+				int index = graph.indexOf(id);
+				if (index != -1) lazyStates[index] = true;
+			});
+
+			eagerStates = new boolean[graph.stateCount()];
+			eagerTransitions = new boolean[graph.transitionCount()];
+			for (StateID<?> dest : destinations) {
+				DependencyClosure.closure(graph, graph.indexOf(dest), eagerStates, eagerTransitions, lazyStates);
+			}
+		}
+
+		Set<StateID<?>> sources = new LinkedHashSet<>();
+		Map<StateID<?>, Set<StateID<?>>> lazyDependencies = new LinkedHashMap<>();
+		for (int s = 0; s < eagerStates.length; s++) {
+			if (eagerStates[s]) {
+				int producer = graph.producerOf(s);
+				if (producer == -1) {
+					sources.add(graph.state(s));
+				} else if (!eagerTransitions[producer]) {
+					lazyDependencies.put(graph.state(s), eagerDependenciesOf(graph, s, eagerTransitions));
+				}
+			}
+		}
+
+		DependencyClosure closure = DependencyClosure.of(graph, destinations.iterator().next(), states, transitions);
+		return ImmutableExecutionPlan.of(destinations, closure.states(), closure.transitions(), sources,
+			layersOf(graph, states, transitions, eagerTransitions), lazyDependencies.keySet(), lazyDependencies);
+	}
+
+	private static Set<StateID<?>> eagerDependenciesOf(CompactGraph graph, int lazyState, boolean[] eagerTransitions) {
+		boolean[] states = new boolean[graph.stateCount()];
+		boolean[] transitions = new boolean[graph.transitionCount()];
+		DependencyClosure.closure(graph, lazyState, states, transitions);
+
+		Set<StateID<?>> ret = new LinkedHashSet<>();
+		for (int s = 0; s < states.length; s++) {
+			int producer = graph.producerOf(s);
+			if (states[s] && producer != -1 && eagerTransitions[producer]) {
+				ret.add(graph.state(s));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * transitions grouped by the length of the longest path from a root (same layers as Graphs.rootsOf)
+	 */
+	private static List<List<Transition<?>>> layersOf(CompactGraph graph, boolean[] states, boolean[] transitions, boolean[] included) {
+		int stateCount = graph.stateCount();
+		int[] missingInputs = new int[stateCount + transitions.length];
+		int[] level = new int[stateCount + transitions.length];
+		int[] queue = new int[stateCount + transitions.length];
+		int head = 0;
+		int tail = 0;
+
+		for (int s = 0; s < stateCount; s++) {
+			if (states[s]) {
+				missingInputs[s] = graph.producerOf(s) == -1 ? 0 : 1;
+				if (missingInputs[s] == 0) queue[tail++] = s;
+			}
+		}
+		for (int t = 0; t < transitions.length; t++) {
+			if (transitions[t]) {
+				missingInputs[stateCount + t] = graph.sourcesEnd(t) - graph.sourcesStart(t);
+				if (missingInputs[stateCount + t] == 0) queue[tail++] = stateCount + t;
+			}
+		}
+
+		int maxLevel = 0;
+		while (head < tail) {
+			int current = queue[head++];
+			int nextLevel = level[current] + 1;
+			if (current < stateCount) {
+				for (int i = graph.consumersStart(current); i < graph.consumersEnd(current); i++) {
+					int consumer = graph.consumer(i);
+					if (transitions[consumer]) {
+						int node = stateCount + consumer;
+						level[node] = Math.max(level[node], nextLevel);
+						if (--missingInputs[node] == 0) queue[tail++] = node;
+					}
+				}
+			} else {
+				int node = graph.destinationOf(current - stateCount);
+				level[node] = Math.max(level[node], nextLevel);
+				maxLevel = Math.max(maxLevel, nextLevel);
+				if (--missingInputs[node] == 0) queue[tail++] = node;
+			}
+		}
+
+		List<List<Transition<?>>> byLevel = new ArrayList<>();
+		for (int i = 0; i <= maxLevel; i++) {
+			byLevel.add(new ArrayList<>());
+		}
+		for (int t = 0; t < transitions.length; t++) {
+			if (included[t]) {
+				byLevel.get(level[stateCount + t]).add(graph.transition(t));
+			}
+		}
+
+		return byLevel.stream()
+			.filter(it -> !it.isEmpty())
+			.map(Collections::unmodifiableList)
+			.collect(Collectors.toList());
+	}
+}
@@ -16,23 +16,38 @@
  */
 package de.flapdoodle.reverse;
 
-import de.flapdoodle.checks.Preconditions;
+import java.util.Set;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+/**
+ * java flight recorder events, this is the no-op variant for java 8,
+ * the recording variant is in src/main/java11 and packaged as multi-release class
+ */
+final class FlightRecorder {
+
+	interface Span {
+		void end(boolean failed);
+	}
 
-class MapBasedStateLookup implements StateLookup {
+	private static final Span NOOP = failed -> {
+	};
 
-	private final Map<StateID<?>, State<?>> stateMap;
+	private FlightRecorder() {
+		// no instance
+	}
 
-	public MapBasedStateLookup(Map<StateID<?>, State<?>> stateMap) {
-		this.stateMap = new LinkedHashMap<>(stateMap);
+	static Span walkerConstruction(int transitions) {
+		return NOOP;
 	}
 
-	@Override
-	@SuppressWarnings("unchecked")
-	public <D> D of(StateID<D> type) {
-		return ((State<D>) Preconditions.checkNotNull(stateMap.get(type), "could not find state for %s", type)).value();
+	static Span planning(Set<StateID<?>> destinations) {
+		return NOOP;
 	}
 
-}
\ No newline at end of file
+	static Span transition(Transition<?> transition) {
+		return NOOP;
+	}
+
+	static Span tearDown(StateID<?> state) {
+		return NOOP;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.instrumentation.Execution;
+import de.flapdoodle.reverse.instrumentation.Instrumentation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * calls the {@link Instrumentation} hooks of all instrumentation listeners and adds the execution to the log,
+ * nothing is measured if there is neither
+ */
+final class Instrumented {
+
+	private final List<Instrumentation> instrumentation;
+	private final ExecutionLog log;
+	private final Execution.Phase phase;
+	private final StateID<?> state;
+	private final String thread;
+	private final long startNanos;
+
+	private Instrumented(List<Instrumentation> instrumentation, ExecutionLog log, Execution.Phase phase, StateID<?> state) {
+		this.instrumentation = instrumentation;
+		this.log = log;
+		this.phase = phase;
+		this.state = state;
+		this.thread = Thread.currentThread().getName();
+		this.startNanos = System.nanoTime();
+		instrumentation.forEach(it -> {
+			try {
+				it.onStart(phase, state, startNanos);
+			}
+			catch (RuntimeException rx) {
+				new RuntimeException("instrumentation MUST NOT throw errors", rx).printStackTrace();
+			}
+		});
+	}
+
+	static List<Instrumentation> instrumentationOf(List<Listener> listener) {
+		if (listener.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return listener.stream()
+			.filter(it -> it instanceof Instrumentation)
+			.map(it -> (Instrumentation) it)
+			.collect(Collectors.toList());
+	}
+
+	static Optional<Instrumented> start(List<Listener> listener, ExecutionLog log, Execution.Phase phase, StateID<?> state) {
+		List<Instrumentation> instrumentation = instrumentationOf(listener);
+		return instrumentation.isEmpty() && !log.enabled()
+			? Optional.empty()
+			: Optional.of(new Instrumented(instrumentation, log, phase, state));
+	}
+
+	static <T> T run(List<Listener> listener, ExecutionLog log, Execution.Phase phase, StateID<?> state, Supplier<T> action) {
+		Optional<Instrumented> instrumented = start(listener, log, phase, state);
+		if (!instrumented.isPresent()) {
+			return action.get();
+		}
+		try {
+			T ret = action.get();
+			instrumented.get().end(null);
+			return ret;
+		}
+		catch (RuntimeException | Error ex) {
+			instrumented.get().end(ex);
+			throw ex;
+		}
+	}
+
+	void end(Throwable error) {
+		Execution execution = Execution.of(phase, state, thread, startNanos, System.nanoTime(), Optional.ofNullable(error));
+		log.add(execution);
+		instrumentation.forEach(it -> {
+			try {
+				it.onEnd(execution);
+			}
+			catch (RuntimeException rx) {
+				new RuntimeException("instrumentation MUST NOT throw errors", rx).printStackTrace();
+			}
+		});
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.graph.TransitionGraph;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * one execution reaches all outputs, the walker adds a transition for each output which depends on {@link #destination()},
+ * each output is torn down on its own, outputs which were never needed are torn down with {@link #destination()}
+ */
+public interface MultiOutputTransition extends Transition<Outputs> {
+	Set<StateID<?>> outputs();
+
+	static StateID<Outputs> destinationOf(Set<StateID<?>> outputs) {
+		return StateID.of(outputs.stream()
+			.map(StateID::asLabel)
+			.collect(Collectors.joining(",", "outputs(", ")")), Outputs.class);
+	}
+
+	/**
+	 * wraps the outputs into a state which tears down all outputs not handed out
+	 */
+	static State<Outputs> checked(Set<StateID<?>> outputs, Outputs result) {
+		if (!result.ids().equals(outputs)) {
+			Set<StateID<?>> missing = new LinkedHashSet<>(outputs);
+			missing.removeAll(result.ids());
+			Set<StateID<?>> unexpected = new LinkedHashSet<>(result.ids());
+			unexpected.removeAll(outputs);
+			IllegalArgumentException ex = new IllegalArgumentException("outputs do not match, missing: " + TransitionGraph.asMessage(missing)
+				+ ", unexpected: " + TransitionGraph.asMessage(unexpected));
+			try {
+				result.tearDown();
+			}
+			catch (RuntimeException rx) {
+				ex.addSuppressed(rx);
+			}
+			throw ex;
+		}
+		return State.of(result, Outputs::tearDown);
+	}
+}
@@ -19,6 +19,8 @@ package de.flapdoodle.reverse;
 import org.immutables.value.Value.Immutable;
 import org.immutables.value.Value.Parameter;
 
+import java.util.Set;
+
 @Immutable
 interface NamedTypeAndState<T> {
 	@Parameter
@@ -27,7 +29,16 @@ interface NamedTypeAndState<T> {
 	@Parameter
 	State<T> state();
 
+	/**
+	 * states this state was derived from
+	 */
+	Set<StateID<?>> sources();
+
 	static <T> NamedTypeAndState<T> of(StateID<T> type, State<T> state) {
 		return ImmutableNamedTypeAndState.of(type, state);
 	}
+
+	static <T> NamedTypeAndState<T> of(StateID<T> type, State<T> state, Set<StateID<?>> sources) {
+		return ImmutableNamedTypeAndState.of(type, state).withSources(sources);
+	}
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * hands out one output of a {@link MultiOutputTransition}, the output is torn down when this state is torn down,
+ * if the output was already handed out, the producer is executed again for this state
+ */
+@Value.Immutable(builder = false)
+abstract class OutputTransition<T> implements Transition<T>, HasLabel {
+	@Value.Parameter
+	protected abstract MultiOutputTransition producer();
+
+	@Value.Parameter
+	@Override
+	public abstract StateID<T> destination();
+
+	protected StateID<Outputs> outputs() {
+		return producer().destination();
+	}
+
+	/**
+	 * the sources of the producer are needed to execute it again
+	 */
+	@Override
+	@Value.Lazy
+	public Set<StateID<?>> sources() {
+		Set<StateID<?>> ret = new LinkedHashSet<>();
+		ret.add(outputs());
+		ret.addAll(producer().sources());
+		return Collections.unmodifiableSet(ret);
+	}
+
+	@Override
+	public String transitionLabel() {
+		return "Output";
+	}
+
+	@Override
+	public State<T> result(StateLookup lookup) {
+		Optional<State<T>> output = lookup.of(outputs()).handOut(destination());
+		if (output.isPresent()) {
+			State<T> it = output.get();
+			return State.of(it.value(), ignore -> State.tearDown(it));
+		}
+
+		// other outputs of this execution are kept until this output is torn down
+		State<Outputs> again = producer().result(lookup);
+		State<T> it = again.value().handOut(destination())
+			.orElseThrow(() -> new IllegalStateException("output " + StateID.asLabel(destination()) + " already handed out"));
+		return State.of(it.value(), ignore -> {
+			try {
+				State.tearDown(it);
+			}
+			finally {
+				State.tearDown(again);
+			}
+		});
+	}
+}
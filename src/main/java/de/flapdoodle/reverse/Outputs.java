@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+
+import java.util.*;
+
+/**
+ * states reached by one execution of a {@link MultiOutputTransition}, each output keeps its own tear down,
+ * which is called when the output is torn down, outputs nobody asked for are torn down with the outputs
+ */
+public final class Outputs {
+
+	private final Map<StateID<?>, State<?>> states;
+	private final Set<StateID<?>> handedOut = new HashSet<>();
+
+	private Outputs(Map<StateID<?>, State<?>> states) {
+		this.states = Collections.unmodifiableMap(new LinkedHashMap<>(states));
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Set<StateID<?>> ids() {
+		return states.keySet();
+	}
+
+	public <T> T value(StateID<T> id) {
+		return state(id).value();
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> State<T> state(StateID<T> id) {
+		State<T> ret = (State<T>) states.get(id);
+		Preconditions.checkArgument(ret != null, "no output %s", id);
+		return ret;
+	}
+
+	/**
+	 * the output is torn down on its own from now on, empty if it was already handed out
+	 */
+	synchronized <T> Optional<State<T>> handOut(StateID<T> id) {
+		State<T> ret = state(id);
+		return handedOut.add(id)
+			? Optional.of(ret)
+			: Optional.empty();
+	}
+
+	/**
+	 * outputs which were not handed out, in reverse order
+	 */
+	void tearDown() {
+		List<State<?>> reversed = new ArrayList<>();
+		synchronized (this) {
+			states.forEach((id, state) -> {
+				if (handedOut.add(id)) {
+					reversed.add(state);
+				}
+			});
+		}
+		Collections.reverse(reversed);
+
+		List<RuntimeException> exceptions = new ArrayList<>();
+		for (State<?> state : reversed) {
+			try {
+				State.tearDown(state);
+			}
+			catch (RuntimeException rx) {
+				exceptions.add(rx);
+			}
+		}
+		if (!exceptions.isEmpty()) {
+			throw new TearDownException("tearDown errors", exceptions);
+		}
+	}
+
+	public static final class Builder {
+		private final Map<StateID<?>, State<?>> states = new LinkedHashMap<>();
+
+		private Builder() {
+		}
+
+		public <T> Builder put(StateID<T> id, State<T> state) {
+			Preconditions.checkArgument(!states.containsKey(id), "output %s already set", id);
+			states.put(id, Preconditions.checkNotNull(state, "state is null"));
+			return this;
+		}
+
+		public <T> Builder put(StateID<T> id, T value) {
+			return put(id, State.of(value));
+		}
+
+		public Outputs build() {
+			return new Outputs(states);
+		}
+	}
+}
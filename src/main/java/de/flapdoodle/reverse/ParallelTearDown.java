@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * tears down independent states concurrently, a state is torn down only after all states depending on it,
+ * listener calls happen in the calling thread
+ */
+class ParallelTearDown {
+
+	private final List<Listener> initListener;
+	private final Executor executor;
+
+	private final Map<StateID<?>, Integer> dependents = new HashMap<>();
+	private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+	private final List<RuntimeException> exceptions = new ArrayList<>();
+
+	private ParallelTearDown(List<Listener> initListener, Executor executor) {
+		this.initListener = initListener;
+		this.executor = executor;
+	}
+
+	static List<RuntimeException> tearDown(List<NamedTypeAndState<?>> reached, List<Listener> initListener, Executor executor) {
+		return new ParallelTearDown(initListener, executor).tearDown(reached);
+	}
+
+	private List<RuntimeException> tearDown(List<NamedTypeAndState<?>> reached) {
+		Map<StateID<?>, NamedTypeAndState<?>> byId = new LinkedHashMap<>();
+		reached.forEach(it -> byId.put(it.type(), it));
+
+		reached.forEach(it -> it.sources().stream()
+			.filter(byId::containsKey)
+			.forEach(source -> dependents.merge(source, 1, Integer::sum)));
+
+		int running = 0;
+		// reverse order, so that the order matches the sequential tear down if nothing runs in parallel
+		List<NamedTypeAndState<?>> reversed = new ArrayList<>(reached);
+		Collections.reverse(reversed);
+		for (NamedTypeAndState<?> it : reversed) {
+			if (!dependents.containsKey(it.type())) {
+				submit(it);
+				running++;
+			}
+		}
+
+		boolean interrupted = false;
+		while (running > 0) {
+			Completion completion;
+			try {
+				completion = completions.take();
+			}
+			catch (InterruptedException ix) {
+				// all states must be torn down
+				interrupted = true;
+				continue;
+			}
+			running--;
+
+			if (completion.error != null) {
+				exceptions.add(completion.error);
+			}
+
+			for (StateID<?> source : completion.typeAndState.sources()) {
+				Integer count = dependents.get(source);
+				if (count != null) {
+					if (count == 1) {
+						dependents.remove(source);
+						submit(byId.get(source));
+						running++;
+					} else {
+						dependents.put(source, count - 1);
+					}
+				}
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		return exceptions;
+	}
+
+	/**
+	 * if the executor does not accept the tear down, it is done in the calling thread
+	 */
+	private void submit(NamedTypeAndState<?> typeAndState) {
+		TransitionWalker.notifyListener(initListener, typeAndState);
+		Runnable tearDown = () -> {
+			try {
+				TransitionWalker.tearDown(initListener, typeAndState);
+				completions.add(new Completion(typeAndState, null));
+			}
+			catch (RuntimeException rx) {
+				completions.add(new Completion(typeAndState, rx));
+			}
+			catch (Throwable tx) {
+				completions.add(new Completion(typeAndState, new RuntimeException(tx)));
+				throw tx;
+			}
+		};
+		try {
+			executor.execute(tearDown);
+		}
+		catch (RuntimeException rx) {
+			tearDown.run();
+		}
+	}
+
+	private static class Completion {
+		private final NamedTypeAndState<?> typeAndState;
+		private final RuntimeException error;
+
+		private Completion(NamedTypeAndState<?> typeAndState, RuntimeException error) {
+			this.typeAndState = typeAndState;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * selects states which are torn down as soon as the last transition of the same init call using them has completed,
+ * the destination of the call is never released early
+ */
+@FunctionalInterface
+public interface ReleasePolicy {
+	boolean releaseEarly(StateID<?> state);
+
+	/**
+	 * every intermediate state is released early
+	 */
+	static ReleasePolicy intermediates() {
+		return state -> true;
+	}
+
+	static ReleasePolicy of(StateID<?>... states) {
+		Set<StateID<?>> selected = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(states)));
+		return selected::contains;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+/**
+ * transition of an inlined sub graph, states are renamed into the namespace of the outer graph,
+ * an {@link AsyncTransition} stays asynchronous
+ */
+abstract class RenamedTransition<T> implements Transition<T>, HasLabel {
+
+	@Value.Parameter
+	protected abstract Transition<T> delegate();
+
+	/**
+	 * outer state for each inner state of the delegate
+	 */
+	@Value.Parameter
+	protected abstract Map<StateID<?>, StateID<?>> innerToOuter();
+
+	@Override
+	@Value.Lazy
+	@SuppressWarnings("unchecked")
+	public StateID<T> destination() {
+		return (StateID<T>) innerToOuter().get(delegate().destination());
+	}
+
+	@Override
+	@Value.Lazy
+	public Set<StateID<?>> sources() {
+		Set<StateID<?>> ret = delegate().sources().stream()
+			.map(innerToOuter()::get)
+			.collect(Collectors.toCollection(LinkedHashSet::new));
+		return Collections.unmodifiableSet(ret);
+	}
+
+	@Override
+	public String transitionLabel() {
+		return Transition.asLabel(delegate());
+	}
+
+	@Override
+	@Value.Auxiliary
+	public State<T> result(StateLookup lookup) {
+		return delegate().result(renamed(lookup));
+	}
+
+	protected StateLookup renamed(StateLookup lookup) {
+		return new StateLookup() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <D> D of(StateID<D> type) {
+				return lookup.of((StateID<D>) innerToOuter().getOrDefault(type, type));
+			}
+		};
+	}
+
+	static <T> RenamedTransition<T> wrap(Transition<T> delegate, Map<StateID<?>, StateID<?>> innerToOuter) {
+		return delegate instanceof AsyncTransition
+			? ImmutableAsyncRenamedTransition.of(delegate, innerToOuter)
+			: ImmutableBlockingRenamedTransition.of(delegate, innerToOuter);
+	}
+
+	@Value.Immutable(builder = false)
+	static abstract class BlockingRenamedTransition<T> extends RenamedTransition<T> {
+	}
+
+	@Value.Immutable(builder = false)
+	static abstract class AsyncRenamedTransition<T> extends RenamedTransition<T> implements AsyncTransition<T> {
+
+		@Override
+		@Value.Auxiliary
+		public State<T> result(StateLookup lookup) {
+			return AsyncTransition.super.result(lookup);
+		}
+
+		@Override
+		@Value.Auxiliary
+		public CompletionStage<State<T>> resultAsync(StateLookup lookup) {
+			return ((AsyncTransition<T>) delegate()).resultAsync(renamed(lookup));
+		}
+	}
+}
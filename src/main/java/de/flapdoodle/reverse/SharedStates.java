@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * selected states are initialized once and shared by all walkers using this registry,
+ * each reached state holds a reference, the state is torn down when the last reference is closed
+ * <p>
+ * a shared state is identified by its StateID only, the first walker initializes it and every other walker gets
+ * this instance, even if its own transitions would produce something different, so all walkers using one registry
+ * must agree on how a shared state is built. all states a shared state depends on must be shared too, otherwise they
+ * could be torn down with the walker which created them while the shared state is still in use.
+ */
+public final class SharedStates {
+
+	private final Set<StateID<?>> shared;
+	private final ConcurrentMap<StateID<?>, Entry<?>> entries = new ConcurrentHashMap<>();
+
+	private SharedStates(Set<StateID<?>> shared) {
+		this.shared = Collections.unmodifiableSet(new LinkedHashSet<>(shared));
+	}
+
+	public static SharedStates of(StateID<?>... shared) {
+		return of(new LinkedHashSet<>(Arrays.asList(shared)));
+	}
+
+	public static SharedStates of(Set<StateID<?>> shared) {
+		Preconditions.checkArgument(!shared.isEmpty(), "no shared states");
+		return new SharedStates(shared);
+	}
+
+	public Set<StateID<?>> shared() {
+		return shared;
+	}
+
+	/**
+	 * number of reached states holding this state, 0 if it is not initialized
+	 */
+	public int referenceCount(StateID<?> id) {
+		Entry<?> entry = entries.get(id);
+		return entry != null ? entry.references() : 0;
+	}
+
+	void checkSourcesAreShared(CompactGraph graph) {
+		shared.stream()
+			.filter(graph::contains)
+			.forEach(id -> {
+				Set<StateID<?>> notShared = DependencyClosure.of(graph, id).states().stream()
+					.filter(it -> !shared.contains(it))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+				Preconditions.checkArgument(notShared.isEmpty(), "shared state %s depends on states which are not shared: %s", id, notShared);
+			});
+	}
+
+	Transition<?> wrap(Transition<?> transition) {
+		return shared.contains(transition.destination()) && !(transition instanceof SharedTransition)
+			? ImmutableSharedTransition.of(this, transition)
+			: transition;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> State<T> acquire(StateID<T> id, Supplier<State<T>> init) {
+		while (true) {
+			Entry<T> entry = (Entry<T>) entries.computeIfAbsent(id, Entry::new);
+			State<T> ret = entry.acquire(init);
+			if (ret != null) {
+				return ret;
+			}
+		}
+	}
+
+	/**
+	 * all calls for one state are serialized, so a new instance is not initialized before the last one is torn down
+	 */
+	private final class Entry<T> {
+		private final StateID<?> id;
+		private State<T> state;
+		private int references;
+		private boolean closed;
+
+		private Entry(StateID<?> id) {
+			this.id = id;
+		}
+
+		private synchronized int references() {
+			return references;
+		}
+
+		/**
+		 * @return null if this entry is already closed
+		 */
+		private synchronized State<T> acquire(Supplier<State<T>> init) {
+			if (closed) {
+				return null;
+			}
+			if (state == null) {
+				try {
+					state = init.get();
+				}
+				catch (RuntimeException | Error ex) {
+					close();
+					throw ex;
+				}
+			}
+			references++;
+			return State.of(state.value(), ignore -> release());
+		}
+
+		private synchronized void release() {
+			Preconditions.checkArgument(references > 0, "shared state %s already released", id);
+			references--;
+			if (references == 0) {
+				try {
+					State.tearDown(state);
+				}
+				finally {
+					close();
+				}
+			}
+		}
+
+		private void close() {
+			closed = true;
+			entries.remove(id, this);
+		}
+	}
+
+	@Value.Immutable
+	static abstract class SharedTransition<T> implements Transition<T>, HasLabel {
+		@Value.Parameter
+		protected abstract SharedStates registry();
+
+		@Value.Parameter
+		protected abstract Transition<T> delegate();
+
+		@Override
+		public StateID<T> destination() {
+			return delegate().destination();
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			return delegate().sources();
+		}
+
+		@Override
+		public String transitionLabel() {
+			return Transition.asLabel(delegate());
+		}
+
+		@Override
+		public State<T> result(StateLookup lookup) {
+			return registry().acquire(destination(), () -> delegate().result(lookup));
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * keeps up to size reached states for one destination initialized in the background,
+ * each state is handed out once and owned by the caller, idle states are torn down after the idle timeout,
+ * if the background initialization fails, the pool is not refilled until the error was thrown by {@link #take()}
+ */
+public final class StatePool<D> implements AutoCloseable {
+
+	private final TransitionWalker walker;
+	private final StateID<D> destination;
+	private final int size;
+	private final long idleTimeoutNanos;
+	private final List<Listener> listener;
+
+	private final BlockingDeque<Idle<D>> idle = new LinkedBlockingDeque<>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicReference<RuntimeException> initError = new AtomicReference<>();
+	private final List<RuntimeException> evictionErrors = Collections.synchronizedList(new ArrayList<>());
+	private final ScheduledExecutorService executor;
+	private volatile boolean closed;
+
+	private StatePool(TransitionWalker walker, StateID<D> destination, int size, Duration idleTimeout, List<Listener> listener) {
+		this.walker = walker;
+		this.destination = destination;
+		this.size = size;
+		this.idleTimeoutNanos = idleTimeout.toNanos();
+		this.listener = Collections.unmodifiableList(new ArrayList<>(listener));
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = Executors.newScheduledThreadPool(size, runnable -> {
+			Thread thread = new Thread(runnable, "state-pool-" + destination.name() + "-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long checkIntervalNanos = Math.max(idleTimeoutNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+		executor.scheduleWithFixedDelay(this::evictIdle, checkIntervalNanos, checkIntervalNanos, TimeUnit.NANOSECONDS);
+		refill();
+	}
+
+	public static <D> StatePool<D> of(TransitionWalker walker, StateID<D> destination, int size, Duration idleTimeout, Listener... listener) {
+		Preconditions.checkArgument(size > 0, "size must be > 0: %s", size);
+		Preconditions.checkArgument(!idleTimeout.isNegative() && !idleTimeout.isZero(), "idle timeout must be > 0: %s", idleTimeout);
+		return new StatePool<>(walker, destination, size, idleTimeout, Arrays.asList(listener));
+	}
+
+	/**
+	 * number of initialized states ready to be handed out
+	 */
+	public int idle() {
+		return idle.size();
+	}
+
+	/**
+	 * hands out a pre-initialized state or, if none is ready, initializes one in the calling thread,
+	 * fails with the error of a failed background initialization, the next call starts to refill the pool again
+	 */
+	public TransitionWalker.ReachedState<D> take() {
+		if (closed) {
+			throw new IllegalStateException("pool for " + StateID.asLabel(destination) + " already closed");
+		}
+		RuntimeException error = initError.getAndSet(null);
+		if (error != null) {
+			throw new RuntimeException("could not initialize " + StateID.asLabel(destination), error);
+		}
+		Idle<D> ready = idle.pollFirst();
+		refill();
+		return ready != null
+			? ready.state
+			: walker.initState(destination, listener);
+	}
+
+	/**
+	 * waits for running initializations and tears down all idle states,
+	 * errors of states torn down after the idle timeout are thrown here
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+		List<RuntimeException> exceptions = new ArrayList<>();
+		synchronized (evictionErrors) {
+			exceptions.addAll(evictionErrors);
+			evictionErrors.clear();
+		}
+		try {
+			closeAll(drain());
+		}
+		catch (RuntimeException ex) {
+			exceptions.add(ex);
+		}
+		if (!exceptions.isEmpty()) {
+			throw new TearDownException("tearDown errors", exceptions);
+		}
+	}
+
+	private void refill() {
+		while (!closed && initError.get() == null) {
+			int running = pending.get();
+			if (idle.size() + running >= size) {
+				return;
+			}
+			if (pending.compareAndSet(running, running + 1)) {
+				try {
+					executor.execute(this::initialize);
+				}
+				catch (RuntimeException ex) {
+					pending.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	private void initialize() {
+		try {
+			TransitionWalker.ReachedState<D> state = walker.initState(destination, listener);
+			idle.addLast(new Idle<>(state, System.nanoTime()));
+		}
+		catch (RuntimeException ex) {
+			// not retried until the next take() has thrown it
+			initError.compareAndSet(null, ex);
+		}
+		finally {
+			pending.decrementAndGet();
+		}
+	}
+
+	private void evictIdle() {
+		long now = System.nanoTime();
+		List<Idle<D>> expired = new ArrayList<>();
+		Idle<D> oldest;
+		while ((oldest = idle.peekFirst()) != null && now - oldest.since >= idleTimeoutNanos) {
+			if (idle.removeFirstOccurrence(oldest)) {
+				expired.add(oldest);
+			}
+		}
+		try {
+			closeAll(expired);
+		}
+		catch (RuntimeException ex) {
+			// MUST NOT throw, or the scheduled eviction stops
+			evictionErrors.add(ex);
+		}
+	}
+
+	private List<Idle<D>> drain() {
+		List<Idle<D>> ret = new ArrayList<>();
+		idle.drainTo(ret);
+		return ret;
+	}
+
+	private static <D> void closeAll(List<Idle<D>> states) {
+		List<RuntimeException> exceptions = new ArrayList<>();
+		for (Idle<D> it : states) {
+			try {
+				it.state.close();
+			}
+			catch (RuntimeException ex) {
+				exceptions.add(ex);
+			}
+		}
+		if (!exceptions.isEmpty()) {
+			throw new TearDownException("tearDown errors", exceptions);
+		}
+	}
+
+	private static final class Idle<D> {
+		private final TransitionWalker.ReachedState<D> state;
+		private final long since;
+
+		private Idle(TransitionWalker.ReachedState<D> state, long since) {
+			this.state = state;
+			this.since = since;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.checks.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * reached states stored by the dense state index of the walker graph,
+ * different slots may be written from different threads if the writes are ordered with the reads
+ */
+final class StateSlots {
+
+	private final CompactGraph graph;
+	private final State<?>[] slots;
+	private final StateLookup lookup;
+	private volatile int size;
+
+	private StateSlots(CompactGraph graph, State<?>[] slots, int size) {
+		this.graph = graph;
+		this.slots = slots;
+		this.size = size;
+		this.lookup = new StateLookup() {
+			@Override
+			public <D> D of(StateID<D> type) {
+				return Preconditions.checkNotNull(get(type), "could not find state for %s", type).value();
+			}
+		};
+	}
+
+	static StateSlots empty(CompactGraph graph) {
+		return new StateSlots(graph, new State<?>[graph.stateCount()], 0);
+	}
+
+	StateSlots copy() {
+		return new StateSlots(graph, Arrays.copyOf(slots, slots.length), size);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(StateID<?> id) {
+		int index = graph.indexOf(id);
+		return index != -1 && slots[index] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> State<T> get(StateID<T> id) {
+		int index = graph.indexOf(id);
+		return index != -1 ? (State<T>) slots[index] : null;
+	}
+
+	synchronized void put(StateID<?> id, State<?> state) {
+		int index = graph.indexOf(id);
+		Preconditions.checkArgument(index != -1, "state %s is not part of this init process", id);
+		if (slots[index] == null) {
+			size++;
+		}
+		slots[index] = state;
+	}
+
+	synchronized void remove(StateID<?> id) {
+		int index = graph.indexOf(id);
+		if (index != -1 && slots[index] != null) {
+			slots[index] = null;
+			size--;
+		}
+	}
+
+	StateLookup asLookup() {
+		return lookup;
+	}
+}
@@ -19,7 +19,10 @@ package de.flapdoodle.reverse;
 import org.immutables.builder.Builder;
 import org.immutables.value.Value;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Value.Immutable
@@ -32,24 +35,32 @@ public abstract class TransitionMapping<D> {
 
 	public abstract List<StateMapping<?>> mappings();
 
+	@Value.Lazy
+	protected Map<StateID<?>, StateID<?>> destinationBySource() {
+		Map<StateID<?>, StateID<?>> ret = new HashMap<>();
+		mappings().forEach(it -> ret.putIfAbsent(it.source(), it.destination()));
+		return Collections.unmodifiableMap(ret);
+	}
+
+	@Value.Lazy
+	protected Map<StateID<?>, StateID<?>> sourceByDestination() {
+		Map<StateID<?>, StateID<?>> ret = new HashMap<>();
+		mappings().forEach(it -> ret.putIfAbsent(it.destination(), it.source()));
+		return Collections.unmodifiableMap(ret);
+	}
+
+	@SuppressWarnings("unchecked")
 	protected <T> Optional<StateID<T>> findDestinationOf(StateID<T> source) {
-		return mappings().stream()
-			.filter(it -> it.source().equals(source))
-			.map(it -> (StateMapping<T>) it)
-			.findFirst()
-			.map(StateMapping::destination);
+		return Optional.ofNullable((StateID<T>) destinationBySource().get(source));
 	}
 
 	protected <T> StateID<T> destinationOf(StateID<T> source) {
 		return findDestinationOf(source).orElse(source);
 	}
 
+	@SuppressWarnings("unchecked")
 	protected <T> Optional<StateID<T>> findSourceOf(StateID<T> destination) {
-		return mappings().stream()
-			.filter(it -> it.destination().equals(destination))
-			.map(it -> (StateMapping<T>) it)
-			.findFirst()
-			.map(StateMapping::source);
+		return Optional.ofNullable((StateID<T>) sourceByDestination().get(destination));
 	}
 
 	protected <T> StateID<T> sourceOf(StateID<T> destination) {
@@ -19,52 +19,331 @@ package de.flapdoodle.reverse;
 import de.flapdoodle.checks.Preconditions;
 import de.flapdoodle.graph.*;
 import de.flapdoodle.reverse.graph.*;
+import de.flapdoodle.reverse.instrumentation.CriticalPath;
+import de.flapdoodle.reverse.instrumentation.Execution;
+import de.flapdoodle.reverse.instrumentation.Instrumentation;
 import de.flapdoodle.reverse.naming.HasLabel;
 import org.immutables.value.Value;
-import org.jgrapht.GraphPath;
-import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TransitionWalker {
 
-	private final DefaultDirectedGraph<Vertex, DefaultEdge> graph;
+	private final Structure structure;
+	private final WalkerOptions options;
 
-	private TransitionWalker(DefaultDirectedGraph<Vertex, DefaultEdge> graph) {
-		this.graph = graph;
+	private TransitionWalker(CompactGraph graph) {
+		this(new Structure(graph, Collections.emptySet()), WalkerOptions.defaults());
 	}
 
-	private static Map<StateID<?>, State<?>> resolve(List<Transition<?>> transitions, Set<StateID<?>> destinations,
-		StateLookup stateOfType, List<Listener> initListener) {
-		Map<StateID<?>, State<?>> ret = new LinkedHashMap<>();
+	private TransitionWalker(Structure structure, WalkerOptions options) {
+		this.structure = structure;
+		this.options = options;
+	}
+
+	/**
+	 * graph and plans, shared between walkers with different options
+	 */
+	private static final class Structure {
+		private final CompactGraph compactGraph;
+		private final Set<StateID<?>> lazy;
+		private final ConcurrentMap<Set<StateID<?>>, ExecutionPlan> plans = new ConcurrentHashMap<>();
+		private final ConcurrentMap<FlightKey, CompletableFuture<ReachedState<?>>> flights = new ConcurrentHashMap<>();
+		private volatile DefaultDirectedGraph<Vertex, DefaultEdge> graph;
+
+		private Structure(CompactGraph compactGraph, Set<StateID<?>> lazy) {
+			this.compactGraph = compactGraph;
+			this.lazy = lazy;
+		}
 
-		for (Transition<?> transition : transitions) {
-			if (destinations.contains(transition.destination())) {
-				State<?> newState = resolve(stateOfType, initListener, transition);
-				ret.put(transition.destination(), newState);
+		/**
+		 * only needed for rendering, so it is created on first use
+		 */
+		private DefaultDirectedGraph<Vertex, DefaultEdge> graph() {
+			DefaultDirectedGraph<Vertex, DefaultEdge> ret = graph;
+			if (ret == null) {
+				ret = TransitionGraph.asGraph(compactGraph.transitions());
+				graph = ret;
 			}
+			return ret;
+		}
+	}
+
+	/**
+	 * transitions in the same layer are executed concurrently with this executor
+	 */
+	public TransitionWalker withExecutor(Executor executor) {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withExecutor(Preconditions.checkNotNull(executor, "executor is null"))
+			.withDataflow(false));
+	}
+
+	/**
+	 * each transition is executed with this executor as soon as all its sources are reached
+	 */
+	public TransitionWalker withDataflowExecutor(Executor executor) {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withExecutor(Preconditions.checkNotNull(executor, "executor is null"))
+			.withDataflow(true));
+	}
+
+	/**
+	 * states which do not depend on each other are torn down concurrently with this executor
+	 */
+	public TransitionWalker withTearDownExecutor(Executor executor) {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withTearDownExecutor(Preconditions.checkNotNull(executor, "executor is null")));
+	}
+
+	/**
+	 * concurrent calls of initState for the same destination and the same already reached states
+	 * join the running initialization, each call gets its own handle, the states are torn down when all handles are closed,
+	 * listeners of the call which started the initialization are used
+	 */
+	public TransitionWalker withSingleFlight() {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withSingleFlight(true));
+	}
+
+	/**
+	 * states selected by the policy are torn down as soon as the last transition of the same initState call using them
+	 * has completed, released states are initialized again if a later call needs them,
+	 * {@link #initStateAsync(StateID, Listener...)} keeps all states
+	 */
+	public TransitionWalker withReleasePolicy(ReleasePolicy releasePolicy) {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withReleasePolicy(Preconditions.checkNotNull(releasePolicy, "releasePolicy is null")));
+	}
+
+	/**
+	 * each init call keeps its transition executions, so that {@link ReachedState#executions()} and
+	 * {@link ReachedState#criticalPath()} can be used, this is enabled as well if an {@link Instrumentation} listener is passed
+	 */
+	public TransitionWalker withExecutionLog() {
+		return new TransitionWalker(structure, ImmutableWalkerOptions.copyOf(options)
+			.withExecutionLog(true));
+	}
+
+	/**
+	 * transitions created by {@link #asTransitionTo(TransitionMapping)} are replaced by the transitions of the wrapped graph,
+	 * so that they are scheduled together with all other transitions, inner states are renamed to 'label.name',
+	 * listeners see the renamed states, lazy inner states stay lazy
+	 */
+	public TransitionWalker withInlinedSubGraphs() {
+		Set<StateID<?>> lazy = new LinkedHashSet<>(structure.lazy);
+		List<Transition<?>> transitions = structure.compactGraph.transitions().stream()
+			.flatMap(it -> inlined(it, lazy).stream())
+			.collect(Collectors.toList());
+		return new TransitionWalker(new Structure(with(transitions).structure.compactGraph, Collections.unmodifiableSet(lazy)), options);
+	}
+
+	/**
+	 * @param lazy lazy states of the wrapped graph are added renamed
+	 */
+	private static List<Transition<?>> inlined(Transition<?> transition, Set<StateID<?>> lazy) {
+		if (!(transition instanceof MappedWrapper)) {
+			return Collections.singletonList(transition);
 		}
 
+		MappedWrapper<?> mapped = (MappedWrapper<?>) transition;
+		TransitionMapping<?> mapping = mapped.transitionMapping();
+		Map<StateID<?>, StateID<?>> innerToOuter = new HashMap<>();
+		mapped.outerToInner().forEach((outer, inner) -> innerToOuter.put(inner, outer));
+		innerToOuter.put(mapping.destination().source(), mapping.destination().destination());
+
+		Set<StateID<?>> innerLazy = new LinkedHashSet<>(mapped.walker().structure.lazy);
+		// layers skip transitions behind lazy states, so the whole closure is inlined
+		List<Transition<?>> ret = mapped.walker().planOf(mapping.destination().source()).transitions().stream()
+			.flatMap(inner -> inlined(inner, innerLazy).stream())
+			.map(inner -> renamed(inner, innerToOuter, mapping.label()))
+			.collect(Collectors.toList());
+
+		// outer states keep their own setting
+		Set<StateID<?>> inlinedStates = ret.stream().map(Transition::destination).collect(Collectors.toSet());
+		innerLazy.stream()
+			.filter(id -> !innerToOuter.containsKey(id))
+			.map(id -> renamed(id, mapping.label()))
+			.filter(inlinedStates::contains)
+			.forEach(lazy::add);
 		return ret;
 	}
-	private static <T> State<T> resolve(StateLookup stateOfType, List<Listener> initListener, Transition<T> transition) {
+
+	private static <T> Transition<T> renamed(Transition<T> transition, Map<StateID<?>, StateID<?>> innerToOuter, String label) {
+		Map<StateID<?>, StateID<?>> renamed = new LinkedHashMap<>();
+		Stream.concat(Stream.of(transition.destination()), transition.sources().stream())
+			.forEach(id -> renamed.put(id, innerToOuter.getOrDefault(id, renamed(id, label))));
+		return RenamedTransition.wrap(transition, renamed);
+	}
+
+	private static StateID<?> renamed(StateID<?> id, String label) {
+		return StateID.of(id.name().isEmpty() ? label : label + "." + id.name(), id.type());
+	}
+
+	/**
+	 * states selected by the registry are initialized once and shared with all other walkers using the same registry,
+	 * all states a shared state depends on must be shared too
+	 */
+	public TransitionWalker withSharedStates(SharedStates sharedStates) {
+		Preconditions.checkNotNull(sharedStates, "sharedStates is null");
+		sharedStates.checkSourcesAreShared(structure.compactGraph);
+		List<Transition<?>> transitions = structure.compactGraph.transitions().stream()
+			.map(sharedStates::wrap)
+			.collect(Collectors.toList());
+		return new TransitionWalker(new Structure(CompactGraph.of(transitions), structure.lazy), options);
+	}
+
+	/**
+	 * these states are not initialized with all other states, but on first access through the {@link StateLookup}
+	 * of a transition which depends on them, lazily reached states are torn down after the states which used them
+	 */
+	public TransitionWalker withLazyStates(StateID<?>... lazy) {
+		Set<StateID<?>> states = new LinkedHashSet<>(structure.lazy);
+		for (StateID<?> id : lazy) {
+			Preconditions.checkArgument(structure.compactGraph.contains(id), "state %s is not part of this init process", TransitionGraph.asMessage(id));
+			states.add(id);
+		}
+		return new TransitionWalker(new Structure(structure.compactGraph, Collections.unmodifiableSet(states)), options);
+	}
+
+	ExecutionPlan planOf(StateID<?> destination) {
+		return planOf(Collections.singleton(destination));
+	}
+
+	ExecutionPlan planOf(Set<StateID<?>> destinations) {
+		return structure.plans.computeIfAbsent(destinations, dests -> recorded(FlightRecorder.planning(dests),
+			() -> ExecutionPlan.of(structure.compactGraph, dests, structure.lazy)));
+	}
+
+	private void resolve(List<Transition<?>> transitions, StateLookup stateOfType, List<Listener> initListener, ExecutionLog log,
+		Map<StateID<?>, State<?>> reached) {
+		if (options.executor().isPresent() && transitions.size() > 1) {
+			resolveConcurrent(transitions, stateOfType, initListener, log, reached, options.executor().get());
+		} else {
+			for (Transition<?> transition : transitions) {
+				State<?> newState = resolve(stateOfType, initListener, log, transition);
+				reached.put(transition.destination(), newState);
+				notifyStateReached(initListener, transition, newState);
+			}
+		}
+	}
+
+	private static void resolveConcurrent(List<Transition<?>> transitions, StateLookup stateOfType, List<Listener> initListener,
+		ExecutionLog log, Map<StateID<?>, State<?>> reached, Executor executor) {
+		List<Listener> synchronizedListener = synchronizedListener(initListener);
+
+		List<CompletableFuture<? extends State<?>>> results = transitions.stream()
+			.map(transition -> CompletableFuture.supplyAsync(() -> resolve(stateOfType, synchronizedListener, log, transition), executor))
+			.collect(Collectors.toList());
+
+		RuntimeException error = null;
+		for (int i = 0; i < transitions.size(); i++) {
+			Transition<?> transition = transitions.get(i);
+			try {
+				State<?> newState = results.get(i).join();
+				reached.put(transition.destination(), newState);
+				notifyStateReached(synchronizedListener, transition, newState);
+			}
+			catch (CompletionException ex) {
+				RuntimeException cause = ex.getCause() instanceof RuntimeException
+					? (RuntimeException) ex.getCause()
+					: ex;
+				if (error == null) {
+					error = cause;
+				} else {
+					error.addSuppressed(cause);
+				}
+			}
+		}
+
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	static <T> State<T> resolve(StateLookup stateOfType, List<Listener> initListener, ExecutionLog log, Transition<T> transition) {
 		StateLookup lookup = stateOfType.limitedTo(transition.sources());
 
-		State<T> state = transition instanceof MappedWrapper
+		return recorded(FlightRecorder.transition(transition), () -> Instrumented.run(initListener, log, Execution.Phase.TRANSITION, transition.destination(),
+			() -> resultOf(lookup, initListener, transition)));
+	}
+
+	private static <T> State<T> resultOf(StateLookup lookup, List<Listener> initListener, Transition<T> transition) {
+		if (transition instanceof SharedStates.SharedTransition) {
+			SharedStates.SharedTransition<T> shared = (SharedStates.SharedTransition<T>) transition;
+			return shared.registry().acquire(transition.destination(), () -> resultOf(lookup, initListener, shared.delegate()));
+		}
+		return transition instanceof MappedWrapper
 			? ((MappedWrapper<T>) transition).result(lookup, initListener)
 			: transition.result(lookup);
+	}
 
+	private static <T> T recorded(FlightRecorder.Span span, Supplier<T> action) {
+		T ret;
+		try {
+			ret = action.get();
+		}
+		catch (RuntimeException | Error ex) {
+			span.end(true);
+			throw ex;
+		}
+		span.end(false);
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> void notifyStateReached(List<Listener> initListener, Transition<T> transition, State<?> state) {
+		T value = ((State<T>) state).value();
 		initListener.forEach(listener -> {
 			try {
-				listener.onStateReached(transition.destination(), state.value());
+				listener.onStateReached(transition.destination(), value);
 			} catch (RuntimeException e) {
 				new RuntimeException("listener MUST NOT throw errors", e).printStackTrace();
 			}
 		});
-		return state;
+	}
+
+	/**
+	 * instrumentation is thread safe and must not be serialized
+	 */
+	static List<Listener> synchronizedListener(List<Listener> initListener) {
+		Object lock = new Object();
+		return initListener.stream()
+			.map(listener -> listener instanceof Instrumentation ? listener : new SynchronizedListener(lock, listener))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * listener calls from concurrent transitions must not overlap
+	 */
+	private static class SynchronizedListener implements Listener {
+		private final Object lock;
+		private final Listener delegate;
+
+		private SynchronizedListener(Object lock, Listener delegate) {
+			this.lock = lock;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public <T> void onStateReached(StateID<T> stateID, T value) {
+			synchronized (lock) {
+				delegate.onStateReached(stateID, value);
+			}
+		}
+
+		@Override
+		public <T> void onStateTearDown(StateID<T> state, T value) {
+			synchronized (lock) {
+				delegate.onStateTearDown(state, value);
+			}
+		}
 	}
 
 	public <D> ReachedState<D> initState(StateID<D> destination, Listener... listener) {
@@ -72,18 +351,59 @@ public class TransitionWalker {
 	}
 
 	public <D> ReachedState<D> initState(StateID<D> destination, Collection<Listener> listener) {
-		return initState(new LinkedHashMap<>(), destination, new ArrayList<>(listener));
+		return initState(StateSlots.empty(structure.compactGraph), destination, new ArrayList<>(listener));
+	}
+
+	/**
+	 * all destinations are reached with one plan for the union of their dependencies
+	 */
+	public ReachedStates initState(Set<StateID<?>> destinations, Listener... listener) {
+		return initState(destinations, Arrays.asList(listener));
+	}
+
+	public ReachedStates initState(Set<StateID<?>> destinations, Collection<Listener> listener) {
+		Preconditions.checkArgument(!destinations.isEmpty(), "no destinations");
+		Set<StateID<?>> dests = Collections.unmodifiableSet(new LinkedHashSet<>(destinations));
+		return new ReachedStates(dests, initState(StateSlots.empty(structure.compactGraph), dests, dests.iterator().next(),
+			new ArrayList<>(listener)));
+	}
+
+	public DependencyClosure dependenciesOf(StateID<?> destination) {
+		Preconditions.checkArgument(structure.compactGraph.contains(destination), "state %s is not part of this init process", TransitionGraph.asMessage(destination));
+		return planOf(destination).closure();
+	}
+
+	/**
+	 * transitions are composed without blocking, AsyncTransition results are awaited without holding a thread,
+	 * blocking transitions are executed with the executor if there is one, otherwise in the thread which completed their
+	 * last source, so that independent blocking transitions do not run concurrently without an executor
+	 */
+	public <D> CompletableFuture<ReachedState<D>> initStateAsync(StateID<D> destination, Listener... listener) {
+		return initStateAsync(destination, Arrays.asList(listener));
+	}
+
+	public <D> CompletableFuture<ReachedState<D>> initStateAsync(StateID<D> dest, Collection<Listener> listener) {
+		List<Listener> initListener = new ArrayList<>(listener);
+		ExecutionPlan plan = checkedPlanOf(StateSlots.empty(structure.compactGraph), dest, initListener);
+
+		StateSlots stateMap = StateSlots.empty(structure.compactGraph);
+		List<Collection<NamedTypeAndState<?>>> initializedStates = new ArrayList<>();
+		ExecutionLog log = executionLogFor(initListener);
+		StateLookup lookup = lookupOf(plan, stateMap, initializedStates, initListener, log);
+
+		return AsyncScheduler.run(transitionsToInit(plan, stateMap), plan::inputsOf, stateMap, lookup, initializedStates, initListener, log,
+				options.executor(), options.tearDownExecutor())
+			.thenApply(ignore -> new ReachedState<>(this, initializedStates, stateMap, dest, initListener, log));
 	}
 
 	public <D> Transition<D> asTransitionTo(TransitionMapping<D> mapping) {
-		StateVertex destination = StateVertex.of(mapping.destination().source());
-		Preconditions.checkArgument(graph.containsVertex(destination), "state %s is not part of this init process", TransitionGraph.asMessage(mapping.destination().source()));
+		Preconditions.checkArgument(structure.compactGraph.contains(mapping.destination().source()), "state %s is not part of this init process", TransitionGraph.asMessage(mapping.destination().source()));
 
-		Collection<VerticesAndEdges<Vertex, DefaultEdge>> dependencies = dependenciesOf(graph, destination);
-		Set<StateID<?>> sources = missingSources(dependencies, new LinkedHashMap<>());
+		Set<StateID<?>> sources = planOf(mapping.destination().source()).sources();
 
 		return ImmutableMappedWrapper.<D>builder()
-			.graph(graph)
+			.walker(new TransitionWalker(structure, WalkerOptions.defaults()))
+			.transitions(structure.compactGraph.transitions())
 			.transitionLabel(mapping.label())
 			.transitionMapping(mapping)
 			.addAllMissingSources(sources)
@@ -97,7 +417,24 @@ public class TransitionWalker {
 
 		protected abstract Set<StateID<?>> missingSources();
 
-		protected abstract DefaultDirectedGraph<Vertex, DefaultEdge> graph();
+		/**
+		 * transitions of the nested walker
+		 */
+		protected abstract List<Transition<?>> transitions();
+
+		/**
+		 * nested walker, shares graph and plans with the walker this wrapper was created from
+		 */
+		@Value.Auxiliary
+		protected abstract TransitionWalker walker();
+
+		/**
+		 * only needed for rendering, so it is taken from the nested walker on first use
+		 */
+		@Value.Lazy
+		protected DefaultDirectedGraph<Vertex, DefaultEdge> graph() {
+			return walker().structure.graph();
+		}
 
 		@Override
 		public abstract String transitionLabel();
@@ -111,9 +448,17 @@ public class TransitionWalker {
 		@Override
 		@Value.Lazy
 		public Set<StateID<?>> sources() {
-			return missingSources().stream()
-				.map(transitionMapping()::sourceOf)
-				.collect(Collectors.toSet());
+			return Collections.unmodifiableSet(new LinkedHashSet<>(outerToInner().keySet()));
+		}
+
+		/**
+		 * outer state for each missing inner state
+		 */
+		@Value.Lazy
+		protected Map<StateID<?>, StateID<?>> outerToInner() {
+			Map<StateID<?>, StateID<?>> ret = new LinkedHashMap<>();
+			missingSources().forEach(inner -> ret.put(transitionMapping().sourceOf(inner), inner));
+			return Collections.unmodifiableMap(ret);
 		}
 
 		@Override
@@ -124,11 +469,12 @@ public class TransitionWalker {
 
 		@Value.Auxiliary
 		protected State<T> result(StateLookup lookup, List<Listener> listener) {
-			Map<StateID<?>, State<?>> stateMap = sources().stream()
-				.collect(Collectors.toMap(transitionMapping()::destinationOf, id -> State.of(lookup.of(id))));
+			TransitionWalker walker = walker();
+			StateSlots stateMap = StateSlots.empty(walker.structure.compactGraph);
+			outerToInner().forEach((outer, inner) -> stateMap.put(inner, State.of(lookup.of(outer))));
 
 			@SuppressWarnings("resource")
-			ReachedState<T> reachedState = new TransitionWalker(graph()).initState(stateMap, transitionMapping().destination().source(), listener);
+			ReachedState<T> reachedState = walker.initState(stateMap, transitionMapping().destination().source(), listener);
 			return State.of(reachedState.current(), ignore -> reachedState.close());
 		}
 
@@ -152,114 +498,386 @@ public class TransitionWalker {
 		}
 	}
 
-	private <D> ReachedState<D> initState(Map<StateID<?>, State<?>> currentStateMap, StateID<D> dest, List<Listener> initListener) {
-		Preconditions.checkNotNull(initListener, "listener must not be null");
-		Preconditions.checkArgument(!currentStateMap.containsKey(dest), "state %s already initialized", TransitionGraph.asMessage(dest));
+	private <D> ReachedState<D> initState(StateSlots currentStateMap, StateID<D> dest, List<Listener> initListener) {
+		return initState(currentStateMap, Collections.singleton(dest), dest, initListener);
+	}
 
-		StateVertex destination = StateVertex.of(dest);
-		Preconditions.checkArgument(graph.containsVertex(destination), "state %s is not part of this init process", TransitionGraph.asMessage(dest));
+	/**
+	 * @param dest one of the destinations, returned by {@link ReachedState#current()}
+	 */
+	private <D> ReachedState<D> initState(StateSlots currentStateMap, Set<StateID<?>> destinations, StateID<D> dest,
+		List<Listener> initListener) {
+		if (options.singleFlight()) {
+			return singleFlight(new FlightKey(currentStateMap.isEmpty() ? structure : currentStateMap, destinations),
+				() -> initStateNow(currentStateMap, destinations, dest, initListener));
+		}
+		return initStateNow(currentStateMap, destinations, dest, initListener);
+	}
 
-		Map<StateID<?>, State<?>> stateMap = new LinkedHashMap<>(currentStateMap);
-		List<Collection<NamedTypeAndState<?>>> initializedStates = new ArrayList<>();
+	@SuppressWarnings("unchecked")
+	private <D> ReachedState<D> singleFlight(FlightKey key, Supplier<ReachedState<D>> init) {
+		while (true) {
+			CompletableFuture<ReachedState<?>> flight = new CompletableFuture<>();
+			CompletableFuture<ReachedState<?>> running = structure.flights.putIfAbsent(key, flight);
+			if (running == null) {
+				try {
+					ReachedState<D> reached = init.get();
+					flight.complete(reached);
+					return reached;
+				}
+				catch (RuntimeException | Error ex) {
+					flight.completeExceptionally(ex);
+					throw ex;
+				}
+				finally {
+					structure.flights.remove(key, flight);
+				}
+			}
 
-		Collection<VerticesAndEdges<Vertex, DefaultEdge>> dependencies = dependenciesOf(graph, destination);
+			ReachedState<D> reached;
+			try {
+				reached = (ReachedState<D>) running.join();
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw ex;
+			}
 
-		if (!dependencies.isEmpty()) {
-			Set<StateID<?>> missingSources = missingSources(dependencies, currentStateMap);
+			Optional<ReachedState<D>> handle = reached.newHandle();
+			if (handle.isPresent()) {
+				return handle.get();
+			}
+			// all handles were closed before this call could join, so start again
+		}
+	}
+
+	/**
+	 * already reached states are compared by identity
+	 */
+	private static final class FlightKey {
+		private final Object reached;
+		private final Set<StateID<?>> destination;
 
-			Preconditions.checkArgument(missingSources.isEmpty(), "missing transitions: %s", TransitionGraph.asMessage(missingSources));
+		private FlightKey(Object reached, Set<StateID<?>> destination) {
+			this.reached = reached;
+			this.destination = destination;
 		}
 
-		for (VerticesAndEdges<Vertex, DefaultEdge> set : dependencies) {
-			List<Transition<?>> transitions = set.vertices().stream()
-				.filter(it -> it instanceof TransitionVertex)
-				.map(it -> (TransitionVertex) it)
-				.map(TransitionVertex::transition)
-				.collect(Collectors.toList());
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			FlightKey other = (FlightKey) o;
+			return reached == other.reached && destination.equals(other.destination);
+		}
 
-			Set<StateID<?>> destinations = transitions.stream()
-				.map(Transition::destination)
-				.collect(Collectors.toSet());
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(reached) + destination.hashCode();
+		}
+	}
 
-			Set<StateID<?>> needInitialization = filterNotIn(stateMap.keySet(), destinations);
+	private <D> ReachedState<D> initStateNow(StateSlots currentStateMap, Set<StateID<?>> destinations, StateID<D> dest,
+		List<Listener> initListener) {
+		ExecutionPlan plan = checkedPlanOf(currentStateMap, destinations, initListener);
 
-			try {
-				Map<StateID<?>, State<?>> newStatesAsMap = resolve(transitions, needInitialization,
-					new MapBasedStateLookup(stateMap), initListener);
-				if (!newStatesAsMap.isEmpty()) {
-					initializedStates.add(asNamedTypeAndState(newStatesAsMap));
-					stateMap.putAll(newStatesAsMap);
-				}
-			}
-			catch (RuntimeException ex) {
-				tearDown(initializedStates, initListener, Optional.of(
-					new RuntimeException("rollback after error on transition to " + TransitionGraph.asMessage(needInitialization) +
-						", successful reached:" + successStatesAsMessage(initializedStates), ex))
-				);
-			}
+		StateSlots stateMap = currentStateMap.copy();
+		List<Collection<NamedTypeAndState<?>>> initializedStates = new ArrayList<>();
+		ExecutionLog log = executionLogFor(initListener);
+
+		initMissing(plan, stateMap, initializedStates, initListener, log);
+
+		return new ReachedState<>(this, initializedStates, stateMap, dest, initListener, log);
+	}
+
+	/**
+	 * reaches all states of the plan which are not part of the state map
+	 */
+	private void initMissing(ExecutionPlan plan, StateSlots stateMap, List<Collection<NamedTypeAndState<?>>> initializedStates,
+		List<Listener> initListener, ExecutionLog log) {
+		StateLookup lookup = lookupOf(plan, stateMap, initializedStates, initListener, log);
+		List<Transition<?>> transitions = transitionsToInit(plan, stateMap);
+		Optional<EagerRelease> release = EagerRelease.of(options.releasePolicy(), plan.destinations(), transitions, plan::inputsOf, stateMap,
+			initializedStates, initListener);
+
+		if (options.dataflow() && options.executor().isPresent()) {
+			DataflowScheduler.run(transitions, plan::inputsOf, stateMap, lookup, release, initializedStates, initListener, log,
+				options.executor().get(), options.tearDownExecutor());
+		} else {
+			initLayered(plan, stateMap, lookup, release, initializedStates, initListener, log);
 		}
+	}
 
-		return new ReachedState<>(this, initializedStates, stateMap, stateOfMap(stateMap, dest), initListener);
+	private ExecutionPlan checkedPlanOf(StateSlots currentStateMap, StateID<?> dest, List<Listener> initListener) {
+		return checkedPlanOf(currentStateMap, Collections.singleton(dest), initListener);
 	}
 
-	private static Set<StateID<?>> missingSources(Collection<VerticesAndEdges<Vertex, DefaultEdge>> dependencies,
-		Map<StateID<?>, State<?>> currentStateMap) {
-		return dependencies.stream()
-			.findFirst()
-			.map(VerticesAndEdges::vertices)
-			.orElse(Collections.emptySet()).stream()
-			.filter(it -> it instanceof StateVertex)
-			.map(it -> ((StateVertex) it).stateId())
-			.filter(it -> !currentStateMap.containsKey(it))
-			.collect(Collectors.toSet());
+	private ExecutionPlan checkedPlanOf(StateSlots currentStateMap, Set<StateID<?>> destinations, List<Listener> initListener) {
+		Preconditions.checkNotNull(initListener, "listener must not be null");
+		for (StateID<?> dest : destinations) {
+			Preconditions.checkArgument(!currentStateMap.contains(dest), "state %s already initialized", TransitionGraph.asMessage(dest));
+
+			Preconditions.checkArgument(structure.compactGraph.contains(dest), "state %s is not part of this init process", TransitionGraph.asMessage(dest));
+		}
+
+		ExecutionPlan plan = planOf(destinations);
+
+		Set<StateID<?>> missingSources = plan.missingSources(currentStateMap::contains);
+		Preconditions.checkArgument(missingSources.isEmpty(), "missing transitions: %s", TransitionGraph.asMessage(missingSources));
+
+		return plan;
 	}
 
-	private static Collection<VerticesAndEdges<Vertex, DefaultEdge>> dependenciesOf(
-		DefaultDirectedGraph<Vertex, DefaultEdge> routesAsGraph, StateVertex destination) {
-		DefaultDirectedGraph<Vertex, DefaultEdge> filtered = Graphs.filter(routesAsGraph,
-			v -> v.equals(destination) || isDependencyOf(routesAsGraph, v, destination));
-		return Graphs.rootsOf(filtered);
+	private ExecutionLog executionLogFor(List<Listener> initListener) {
+		return options.executionLog() || !Instrumented.instrumentationOf(initListener).isEmpty()
+			? ExecutionLog.create()
+			: ExecutionLog.NONE;
 	}
 
-	private static boolean isDependencyOf(DefaultDirectedGraph<Vertex, DefaultEdge> routesAsGraph, Vertex source,
-		StateVertex destination) {
-		GraphPath<Vertex, DefaultEdge> ret = DijkstraShortestPath.findPathBetween(routesAsGraph, source, destination);
-		return ret != null && !ret.getEdgeList().isEmpty();
+	private StateLookup lookupOf(ExecutionPlan plan, StateSlots stateMap, List<Collection<NamedTypeAndState<?>>> initializedStates,
+		List<Listener> initListener, ExecutionLog log) {
+		return plan.lazyStates().isEmpty()
+			? stateMap.asLookup()
+			: new LazyLookup(stateMap, initializedStates, synchronizedListener(initListener), log);
 	}
 
-	@SuppressWarnings("unchecked")
-	private static <D> State<D> stateOfMap(Map<StateID<?>, State<?>> stateMap, StateID<D> destination) {
-		return (State<D>) stateMap.get(destination);
+	/**
+	 * reaches a lazy state and all missing states it depends on on first access, the reached states are added
+	 * to the initialized states before the state of the transition which accessed them
+	 */
+	private final class LazyLookup implements StateLookup {
+		private final StateSlots stateMap;
+		private final List<Collection<NamedTypeAndState<?>>> initializedStates;
+		private final List<Listener> initListener;
+		private final ExecutionLog log;
+
+		private LazyLookup(StateSlots stateMap, List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener,
+			ExecutionLog log) {
+			this.stateMap = stateMap;
+			this.initializedStates = initializedStates;
+			this.initListener = initListener;
+			this.log = log;
+		}
+
+		@Override
+		public <D> D of(StateID<D> type) {
+			if (!stateMap.contains(type) && structure.lazy.contains(type)) {
+				reach(type);
+			}
+			return stateMap.asLookup().of(type);
+		}
+
+		private synchronized void reach(StateID<?> type) {
+			if (stateMap.contains(type)) {
+				return;
+			}
+			for (Transition<?> transition : transitionsToInit(checkedPlanOf(stateMap, type, initListener), stateMap)) {
+				State<?> state = resolve(this, initListener, log, transition);
+				stateMap.put(transition.destination(), state);
+				synchronized (initializedStates) {
+					initializedStates.add(Collections.singletonList(namedTypeAndStateOf(transition, state)));
+				}
+				notifyStateReached(initListener, transition, state);
+			}
+		}
+	}
+
+	private static List<Transition<?>> transitionsToInit(ExecutionPlan plan, StateSlots stateMap) {
+		return plan.layers().stream()
+			.flatMap(List::stream)
+			.filter(it -> !stateMap.contains(it.destination()))
+			.collect(Collectors.toList());
+	}
+
+	private void initLayered(ExecutionPlan plan, StateSlots stateMap, StateLookup lookup,
+		@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+		Optional<EagerRelease> release,
+		List<Collection<NamedTypeAndState<?>>> initializedStates, List<Listener> initListener, ExecutionLog log) {
+		for (List<Transition<?>> transitions : plan.layers()) {
+			List<Transition<?>> needed = transitions.stream()
+				.filter(it -> !stateMap.contains(it.destination()))
+				.collect(Collectors.toList());
+
+			Map<StateID<?>, State<?>> newStatesAsMap = new LinkedHashMap<>();
+			try {
+				resolve(needed, lookup, initListener, log, newStatesAsMap);
+			}
+			catch (RuntimeException ex) {
+				Set<StateID<?>> failed = needed.stream()
+					.map(Transition::destination)
+					.filter(it -> !newStatesAsMap.containsKey(it))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+				if (!newStatesAsMap.isEmpty()) {
+					initializedStates.add(asNamedTypeAndState(needed, newStatesAsMap));
+				}
+				tearDown(initializedStates, initListener, options.tearDownExecutor(), Optional.of(
+					new RuntimeException("rollback after error on transition to " + TransitionGraph.asMessage(failed) +
+						", successful reached:" + successStatesAsMessage(initializedStates), ex))
+				);
+			}
+
+			if (!newStatesAsMap.isEmpty()) {
+				initializedStates.add(asNamedTypeAndState(needed, newStatesAsMap));
+				newStatesAsMap.forEach(stateMap::put);
+			}
+
+			if (release.isPresent()) {
+				try {
+					needed.forEach(release.get()::completed);
+				}
+				catch (RuntimeException ex) {
+					tearDown(initializedStates, initListener, options.tearDownExecutor(), Optional.of(
+						new RuntimeException("rollback after error on early release, successful reached:" + successStatesAsMessage(initializedStates), ex))
+					);
+				}
+			}
+		}
 	}
 
 	public static class ReachedState<D> implements AutoCloseable {
 
-		private final State<D> state;
+		private final StateID<D> destination;
 		private final List<Collection<NamedTypeAndState<?>>> initializedStates;
-		private final Map<StateID<?>, State<?>> stateMap;
+		private final StateSlots stateMap;
 		private final TransitionWalker parent;
 		private final List<Listener> initListener;
+		private final ExecutionLog log;
+		private final Handles handles;
+		private final AtomicBoolean closed = new AtomicBoolean();
+		/**
+		 * handles of the reached state this one was initialized from
+		 */
+		private volatile Handles parentHandles;
+
+		private ReachedState(TransitionWalker parent, List<Collection<NamedTypeAndState<?>>> initializedStates, StateSlots stateMap,
+			StateID<D> destination, List<Listener> initListener, ExecutionLog log) {
+			this(parent, new ArrayList<>(initializedStates), stateMap, destination, initListener, log, new Handles());
+		}
 
-		private ReachedState(TransitionWalker parent, List<Collection<NamedTypeAndState<?>>> initializedStates, Map<StateID<?>, State<?>> stateMap,
-			State<D> state, List<Listener> initListener) {
+		private ReachedState(TransitionWalker parent, List<Collection<NamedTypeAndState<?>>> initializedStates, StateSlots stateMap,
+			StateID<D> destination, List<Listener> initListener, ExecutionLog log, Handles handles) {
 			this.parent = parent;
-			this.state = state;
+			this.destination = destination;
 			this.initListener = initListener;
-			this.stateMap = new LinkedHashMap<>(stateMap);
-			this.initializedStates = new ArrayList<>(initializedStates);
+			this.log = log;
+			this.stateMap = stateMap;
+			this.initializedStates = initializedStates;
+			this.handles = handles;
+		}
+
+		private Optional<ReachedState<D>> newHandle() {
+			return handles.acquire()
+				? Optional.of(new ReachedState<>(parent, initializedStates, stateMap, destination, initListener, log, handles))
+				: Optional.empty();
 		}
 
 		public <T> ReachedState<T> initState(StateID<T> destination) {
-			return parent.initState(stateMap, destination, initListener);
+			ReachedState<T> child = parent.initState(stateMap, destination, initListener);
+			handles.childOpened();
+			child.parentHandles = handles;
+			return child;
 		}
 
+		/**
+		 * tears down all states reached by this call, if this is the last open handle onto them
+		 */
 		@Override
 		public void close() {
-			tearDown(initializedStates, initListener, Optional.empty());
+			if (closed.compareAndSet(false, true)) {
+				try {
+					if (handles.release()) {
+						tearDown(initializedStates, initListener, parent.options.tearDownExecutor(), Optional.empty());
+					}
+				}
+				finally {
+					Handles parentHandles = this.parentHandles;
+					if (parentHandles != null) {
+						parentHandles.childClosed();
+					}
+				}
+			}
+		}
+
+		/**
+		 * tears down this state and all states reached by this call which depend on it in reverse order,
+		 * then initializes them again, all other states are kept,
+		 * states reached with {@link #initState(StateID)} must be closed before and no other handle of a single flight
+		 * may be open, if this fails all states are torn down and this reached state is closed
+		 */
+		public void invalidate(StateID<?> invalidated) {
+			synchronized (handles) {
+				if (closed.get()) {
+					throw new IllegalStateException("already closed");
+				}
+				handles.checkExclusive();
+
+				List<NamedTypeAndState<?>> affected = dependentsOf(invalidated);
+				Preconditions.checkArgument(!affected.isEmpty(), "state %s was not reached by this call", TransitionGraph.asMessage(invalidated));
+
+				Set<NamedTypeAndState<?>> affectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+				affectedSet.addAll(affected);
+				synchronized (initializedStates) {
+					List<Collection<NamedTypeAndState<?>>> kept = initializedStates.stream()
+						.map(layer -> layer.stream().filter(it -> !affectedSet.contains(it)).collect(Collectors.toList()))
+						.filter(layer -> !layer.isEmpty())
+						.collect(Collectors.toList());
+					initializedStates.clear();
+					initializedStates.addAll(kept);
+				}
+				affected.forEach(it -> stateMap.remove(it.type()));
+
+				try {
+					tearDown(affected.stream().map(Collections::<NamedTypeAndState<?>>singletonList).collect(Collectors.toList()), initListener, parent.options.tearDownExecutor(), Optional.empty());
+				}
+				catch (RuntimeException ex) {
+					List<Collection<NamedTypeAndState<?>>> remaining = new ArrayList<>(initializedStates);
+					initializedStates.clear();
+					try {
+						tearDown(remaining, initListener, parent.options.tearDownExecutor(), Optional.of(ex));
+					}
+					finally {
+						close();
+					}
+				}
+
+				try {
+					parent.initMissing(parent.checkedPlanOf(stateMap, destination, initListener), stateMap, initializedStates, initListener, log);
+				}
+				catch (RuntimeException ex) {
+					// everything is already rolled back, close() releases the handles only
+					initializedStates.clear();
+					close();
+					throw ex;
+				}
+			}
+		}
+
+		/**
+		 * in the order they were reached
+		 */
+		private List<NamedTypeAndState<?>> dependentsOf(StateID<?> invalidated) {
+			Set<StateID<?>> ids = new LinkedHashSet<>();
+			ids.add(invalidated);
+
+			List<NamedTypeAndState<?>> ret = new ArrayList<>();
+			synchronized (initializedStates) {
+				initializedStates.stream()
+					.flatMap(Collection::stream)
+					.forEach(it -> {
+						if (it.type().equals(invalidated) || it.sources().stream().anyMatch(ids::contains) && ids.add(it.type())) {
+							ret.add(it);
+						}
+					});
+			}
+			return ret.stream().anyMatch(it -> it.type().equals(invalidated))
+				? ret
+				: Collections.emptyList();
 		}
 
 		public D current() {
-			return state.value();
+			return stateMap.get(destination).value();
 		}
 
 		public State<D> asState() {
@@ -267,28 +885,141 @@ public class TransitionWalker {
 				.onTearDown(current -> close())
 				.build();
 		}
+
+		/**
+		 * transitions executed to reach this state, states reached before are not included,
+		 * only available with {@link TransitionWalker#withExecutionLog()} or an {@link Instrumentation} listener
+		 */
+		public List<Execution> executions() {
+			if (!log.enabled()) {
+				throw new IllegalStateException("executions are not recorded, use TransitionWalker.withExecutionLog()");
+			}
+			return log.executions();
+		}
+
+		public CriticalPath criticalPath() {
+			return CriticalPath.of(parent.structure.compactGraph.transitions(), executions());
+		}
+	}
+
+	/**
+	 * destinations reached with one initState call, only the destinations can be looked up
+	 */
+	public static class ReachedStates implements StateLookup, AutoCloseable {
+		private final Set<StateID<?>> destinations;
+		private final ReachedState<?> reached;
+
+		private ReachedStates(Set<StateID<?>> destinations, ReachedState<?> reached) {
+			this.destinations = destinations;
+			this.reached = reached;
+		}
+
+		public Set<StateID<?>> destinations() {
+			return destinations;
+		}
+
+		@Override
+		public <T> T of(StateID<T> type) {
+			Preconditions.checkArgument(destinations.contains(type), "state %s is not a destination", TransitionGraph.asMessage(type));
+			return reached.stateMap.get(type).value();
+		}
+
+		public <T> ReachedState<T> initState(StateID<T> destination) {
+			return reached.initState(destination);
+		}
+
+		/**
+		 * tears down all states reached by this call
+		 */
+		@Override
+		public void close() {
+			reached.close();
+		}
+
+		public List<Execution> executions() {
+			return reached.executions();
+		}
+
+		public CriticalPath criticalPath() {
+			return reached.criticalPath();
+		}
 	}
 
-	private static void tearDown(
+	/**
+	 * open handles onto the same reached states
+	 */
+	private static final class Handles {
+		private int open = 1;
+		private int children = 0;
+
+		private synchronized boolean acquire() {
+			if (open == 0) {
+				return false;
+			}
+			open++;
+			return true;
+		}
+
+		/**
+		 * @return true if this was the last open handle
+		 */
+		private synchronized boolean release() {
+			open--;
+			return open == 0;
+		}
+
+		private synchronized void childOpened() {
+			children++;
+		}
+
+		private synchronized void childClosed() {
+			children--;
+		}
+
+		/**
+		 * states must not be changed while someone else is using them
+		 */
+		private synchronized void checkExclusive() {
+			if (open > 1) {
+				throw new IllegalStateException("reached state is shared with " + (open - 1) + " other open handle(s)");
+			}
+			if (children > 0) {
+				throw new IllegalStateException(children + " state(s) reached with initState are still open");
+			}
+		}
+	}
+
+	static void tearDown(
 		List<Collection<NamedTypeAndState<?>>> initializedStates,
 		List<Listener> initListener,
 		@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+		Optional<Executor> tearDownExecutor,
+		@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 		Optional<RuntimeException> optCause
 	) {
-		List<RuntimeException> exceptions = new ArrayList<>();
+		List<RuntimeException> exceptions;
 
-		ArrayList<Collection<NamedTypeAndState<?>>> copy = new ArrayList<>(initializedStates);
-		Collections.reverse(copy);
+		if (tearDownExecutor.isPresent()) {
+			List<NamedTypeAndState<?>> reached = initializedStates.stream()
+				.flatMap(Collection::stream)
+				.collect(Collectors.toList());
+			exceptions = ParallelTearDown.tearDown(reached, initListener, tearDownExecutor.get());
+		} else {
+			exceptions = new ArrayList<>();
 
-		copy.forEach(stateSet -> stateSet.forEach(typeAndState -> {
-			notifyListener(initListener, typeAndState);
-			try {
-				State.tearDown(typeAndState.state());
-			}
-			catch (RuntimeException rx) {
-				exceptions.add(rx);
-			}
-		}));
+			ArrayList<Collection<NamedTypeAndState<?>>> copy = new ArrayList<>(initializedStates);
+			Collections.reverse(copy);
+
+			copy.forEach(stateSet -> stateSet.forEach(typeAndState -> {
+				notifyListener(initListener, typeAndState);
+				try {
+					tearDown(initListener, typeAndState);
+				}
+				catch (RuntimeException rx) {
+					exceptions.add(rx);
+				}
+			}));
+		}
 
 		TearDownException tearDownException = null;
 		if (!exceptions.isEmpty()) {
@@ -313,17 +1044,25 @@ public class TransitionWalker {
 		}
 	}
 
-	private static Collection<NamedTypeAndState<?>> asNamedTypeAndState(Map<StateID<?>, State<?>> newStatesAsMap) {
-		return newStatesAsMap.entrySet().stream()
-			.map(TransitionWalker::namedTypeAndStateOf)
+	static void tearDown(List<Listener> initListener, NamedTypeAndState<?> typeAndState) {
+		recorded(FlightRecorder.tearDown(typeAndState.type()), () -> Instrumented.run(initListener, ExecutionLog.NONE, Execution.Phase.TEAR_DOWN, typeAndState.type(), () -> {
+			State.tearDown(typeAndState.state());
+			return null;
+		}));
+	}
+
+	private static Collection<NamedTypeAndState<?>> asNamedTypeAndState(List<Transition<?>> transitions, Map<StateID<?>, State<?>> newStatesAsMap) {
+		return transitions.stream()
+			.filter(it -> newStatesAsMap.containsKey(it.destination()))
+			.map(it -> namedTypeAndStateOf(it, newStatesAsMap.get(it.destination())))
 			.collect(Collectors.toList());
 	}
 
-	private static NamedTypeAndState<?> namedTypeAndStateOf(Map.Entry<StateID<?>, State<?>> e) {
-		return NamedTypeAndState.of((StateID) e.getKey(), e.getValue());
+	static NamedTypeAndState<?> namedTypeAndStateOf(Transition<?> transition, State<?> state) {
+		return NamedTypeAndState.of((StateID) transition.destination(), state, transition.sources());
 	}
 
-	private static <T> void notifyListener(List<Listener> initListener, NamedTypeAndState<T> typeAndState) {
+	static <T> void notifyListener(List<Listener> initListener, NamedTypeAndState<T> typeAndState) {
 		initListener.forEach(listener -> {
 			try {
 				listener.onStateTearDown(typeAndState.type(), typeAndState.state().value());
@@ -333,26 +1072,22 @@ public class TransitionWalker {
 		});
 	}
 
-	private static <T> Set<T> filterNotIn(Set<T> existing, Set<T> toFilter) {
-		return toFilter.stream()
-			.filter(t -> !existing.contains(t))
-			.collect(Collectors.toCollection(LinkedHashSet::new));
-	}
-
 	public static TransitionWalker with(List<? extends Transition<?>> src) {
-		ArrayList<Transition<?>> routes = new ArrayList<>(src);
-
-		Transitions.assertNoCollisions(routes);
-
-		DefaultDirectedGraph<Vertex, DefaultEdge> graph = TransitionGraph.asGraph(routes);
-		List<? extends Loop<Vertex, DefaultEdge>> loops = Graphs.loopsOf(graph);
-
-		Preconditions.checkArgument(loops.isEmpty(), "loops are not supported: %s", Preconditions.lazy(() -> TransitionGraph.asMessage(loops)));
+		return recorded(FlightRecorder.walkerConstruction(src.size()), () -> {
+			Transitions.assertNoCollisions(src);
+			List<Transition<?>> routes = Transitions.withOutputs(src);
+
+			CompactGraph graph = CompactGraph.of(routes);
+			if (!graph.isAcyclic()) {
+				List<? extends Loop<Vertex, DefaultEdge>> loops = Graphs.loopsOf(TransitionGraph.asGraph(routes));
+				Preconditions.checkArgument(loops.isEmpty(), "loops are not supported: %s", Preconditions.lazy(() -> TransitionGraph.asMessage(loops)));
+			}
 
-		return new TransitionWalker(graph);
+			return new TransitionWalker(graph);
+		});
 	}
 
-	private static String successStatesAsMessage(List<Collection<NamedTypeAndState<?>>> initializedStates) {
+	static String successStatesAsMessage(List<Collection<NamedTypeAndState<?>>> initializedStates) {
 		ArrayList<Collection<NamedTypeAndState<?>>> copy = new ArrayList<>(initializedStates);
 		Collections.reverse(copy);
 
@@ -75,13 +75,49 @@ public abstract class Transitions {
 		return ImmutableTransitions.builder().addTransitions(transitions).build();
 	}
 
+	/**
+	 * every output of a multi output transition collides like a destination
+	 */
 	public static void assertNoCollisions(List<? extends Transition<?>> all) {
-		String transitionWithCollisions = all.stream()
-			.collect(Collectors.groupingBy(Transition::destination))
+		Map<StateID<?>, List<Transition<?>>> byProducedState = new LinkedHashMap<>();
+		all.stream()
+			.filter(it -> !(it instanceof OutputTransition))
+			.forEach(it -> producedStates(it)
+				.forEach(state -> byProducedState.computeIfAbsent(state, key -> new ArrayList<>()).add(it)));
+
+		String transitionWithCollisions = byProducedState
 			.entrySet().stream().filter(entry -> entry.getValue().size() > 1)
 			.map(entry -> entry.getKey() + " --> "+entry.getValue())
 			.collect(Collectors.joining(",\n  "));
 
 		Preconditions.checkArgument(transitionWithCollisions.isEmpty(), "multiple transitions with same destination: \n  %s", transitionWithCollisions);
 	}
+
+	private static Set<StateID<?>> producedStates(Transition<?> transition) {
+		if (transition instanceof MultiOutputTransition) {
+			Set<StateID<?>> ret = new LinkedHashSet<>();
+			ret.add(transition.destination());
+			ret.addAll(((MultiOutputTransition) transition).outputs());
+			return ret;
+		}
+		return Collections.singleton(transition.destination());
+	}
+
+	/**
+	 * adds a transition for each output of a multi output transition, if it is not already part of the list
+	 */
+	static List<Transition<?>> withOutputs(List<? extends Transition<?>> all) {
+		List<Transition<?>> ret = new ArrayList<>(all);
+		Set<StateID<?>> destinations = all.stream()
+			.map(Transition::destination)
+			.collect(Collectors.toSet());
+
+		all.stream()
+			.filter(it -> it instanceof MultiOutputTransition)
+			.map(it -> (MultiOutputTransition) it)
+			.forEach(it -> it.outputs().stream()
+				.filter(output -> !destinations.contains(output))
+				.forEach(output -> ret.add(ImmutableOutputTransition.of(it, output))));
+		return ret;
+	}
 }
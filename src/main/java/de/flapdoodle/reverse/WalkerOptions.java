@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import org.immutables.value.Value;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+@Value.Immutable
+abstract class WalkerOptions {
+	protected abstract Optional<Executor> executor();
+
+	/**
+	 * start each transition as soon as its sources are reached instead of waiting for the whole layer
+	 */
+	@Value.Default
+	protected boolean dataflow() {
+		return false;
+	}
+
+	/**
+	 * independent states are torn down concurrently with this executor
+	 */
+	protected abstract Optional<Executor> tearDownExecutor();
+
+	/**
+	 * concurrent calls for the same destination join the running initialization
+	 */
+	@Value.Default
+	protected boolean singleFlight() {
+		return false;
+	}
+
+	/**
+	 * states selected by this policy are torn down as soon as no other transition of the same init call needs them
+	 */
+	protected abstract Optional<ReleasePolicy> releasePolicy();
+
+	/**
+	 * keep the executions of each init call for {@link TransitionWalker.ReachedState#criticalPath()}
+	 */
+	@Value.Default
+	protected boolean executionLog() {
+		return false;
+	}
+
+	static WalkerOptions defaults() {
+		return ImmutableWalkerOptions.builder().build();
+	}
+}
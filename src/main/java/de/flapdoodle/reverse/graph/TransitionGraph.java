@@ -31,6 +31,7 @@ import org.jgrapht.graph.DefaultEdge;
 
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -66,6 +67,19 @@ public abstract class TransitionGraph {
 	public static String edgeGraphAsDot(String label, DefaultDirectedGraph<Vertex, DefaultEdge> graph,
 		Function<Transition<?>, String> transitionAsLabel,
 		Function<StateID<?>, String> stateIdAsLabel
+	) {
+		return edgeGraphAsDot(label, graph, transitionAsLabel, stateIdAsLabel, t -> Collections.emptyMap(), (a, b) -> Collections.emptyMap());
+	}
+
+	/**
+	 * @param nodeAttributes added to the default attributes of each node
+	 * @param edgeAttributes attributes of each edge
+	 */
+	public static String edgeGraphAsDot(String label, DefaultDirectedGraph<Vertex, DefaultEdge> graph,
+		Function<Transition<?>, String> transitionAsLabel,
+		Function<StateID<?>, String> stateIdAsLabel,
+		Function<Vertex, Map<String, String>> nodeAttributes,
+		BiFunction<Vertex, Vertex, Map<String, String>> edgeAttributes
 	) {
 		Function<Vertex, String> vertexAsLabel = t -> {
 			Either<StateVertex, TransitionVertex> stateOrTransition = Vertex.asEither(t);
@@ -86,8 +100,11 @@ public abstract class TransitionGraph {
 			.nodeAttributes(t -> {
 				Either<StateVertex, TransitionVertex> stateOrTransition = Vertex.asEither(t);
 				String shape = stateOrTransition.isLeft() ? "ellipse" : "rectangle";
-				return asMap("shape", shape);
+				Map<String, String> ret = asMap("shape", shape);
+				ret.putAll(nodeAttributes.apply(t));
+				return ret;
 			})
+			.edgeAttributes(edgeAttributes)
 			.subGraph(t -> {
 				if (t instanceof TransitionVertex) {
 					Transition<?> transition = ((TransitionVertex) t).transition();
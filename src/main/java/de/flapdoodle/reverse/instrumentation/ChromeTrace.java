@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.StateID;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * records transitions and tear downs as chrome trace events (chrome://tracing, https://ui.perfetto.dev),
+ * one lane per thread, transitions of a mapped sub walker are nested in the span of the mapped transition
+ */
+public final class ChromeTrace implements Instrumentation {
+
+	private final Queue<Execution> executions = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void onEnd(Execution execution) {
+		executions.add(execution);
+	}
+
+	public List<Execution> executions() {
+		return Collections.unmodifiableList(new ArrayList<>(executions));
+	}
+
+	public void writeTo(Path file) throws IOException {
+		Files.write(file, asJson().getBytes(StandardCharsets.UTF_8));
+	}
+
+	public String asJson() {
+		List<Execution> ordered = new ArrayList<>(executions);
+		// enclosing spans first, so that viewers nest them properly
+		ordered.sort(Comparator.comparingLong(Execution::startNanos)
+			.thenComparing(Comparator.comparingLong(Execution::endNanos).reversed()));
+
+		long base = ordered.stream().mapToLong(Execution::startNanos).min().orElse(0L);
+		Map<String, Integer> threadIds = new LinkedHashMap<>();
+		ordered.forEach(it -> threadIds.computeIfAbsent(it.thread(), name -> threadIds.size() + 1));
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+		String separator = "\n";
+		for (Map.Entry<String, Integer> thread : threadIds.entrySet()) {
+			sb.append(separator)
+				.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(thread.getValue())
+				.append(",\"args\":{\"name\":").append(quoted(thread.getKey())).append("}}");
+			separator = ",\n";
+		}
+		for (Execution execution : ordered) {
+			sb.append(separator)
+				.append("{\"name\":").append(quoted(asName(execution.state())))
+				.append(",\"cat\":").append(quoted(execution.phase() == Execution.Phase.TRANSITION ? "transition" : "tearDown"))
+				.append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(threadIds.get(execution.thread()))
+				.append(",\"ts\":").append(asMicros(execution.startNanos() - base))
+				.append(",\"dur\":").append(asMicros(execution.durationNanos()))
+				.append(",\"args\":{\"state\":").append(quoted(StateID.asLabel(execution.state())))
+				.append(",\"failed\":").append(execution.failed());
+			execution.error().ifPresent(error -> sb.append(",\"error\":").append(quoted(String.valueOf(error))));
+			sb.append("}}");
+			separator = ",\n";
+		}
+		sb.append("\n]}\n");
+		return sb.toString();
+	}
+
+	private static String asName(StateID<?> state) {
+		return state.name().isEmpty() ? StateID.asLabel(state) : state.name();
+	}
+
+	private static String asMicros(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+	}
+
+	private static String quoted(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
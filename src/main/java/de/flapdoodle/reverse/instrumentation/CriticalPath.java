@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.graph.StateVertex;
+import de.flapdoodle.reverse.graph.TransitionGraph;
+import de.flapdoodle.reverse.graph.TransitionVertex;
+import de.flapdoodle.reverse.graph.Vertex;
+import org.immutables.value.Value;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * longest chain of executed transitions by measured duration, states reached before the run count as available from the start,
+ * slack is how much longer a transition could have taken without making the whole run longer
+ */
+@Value.Immutable
+public abstract class CriticalPath {
+
+	/**
+	 * all executed transitions, sources before destinations
+	 */
+	@Value.Parameter
+	public abstract List<Step> steps();
+
+	@Value.Lazy
+	public List<Step> path() {
+		return steps().stream()
+			.filter(Step::critical)
+			.collect(Collectors.toList());
+	}
+
+	@Value.Lazy
+	public long lengthNanos() {
+		return steps().stream()
+			.mapToLong(Step::earliestFinishNanos)
+			.max()
+			.orElse(0L);
+	}
+
+	public String asText() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("critical path: ").append(asMillis(lengthNanos())).append("\n");
+		path().forEach(step -> sb.append("  ").append(asMessage(step))
+			.append(" ").append(asMillis(step.execution().durationNanos())).append("\n"));
+		sb.append("slack:\n");
+		steps().stream()
+			.filter(step -> !step.critical())
+			.forEach(step -> sb.append("  ").append(asMessage(step))
+				.append(" ").append(asMillis(step.execution().durationNanos()))
+				.append(", slack ").append(asMillis(step.slackNanos())).append("\n"));
+		return sb.toString();
+	}
+
+	/**
+	 * executed transitions as graph, the critical path is highlighted
+	 */
+	public String asDot(String label) {
+		Map<StateID<?>, Step> stepByDestination = new LinkedHashMap<>();
+		steps().forEach(step -> stepByDestination.put(step.transition().destination(), step));
+
+		List<Transition<?>> transitions = steps().stream()
+			.map(Step::transition)
+			.collect(Collectors.toList());
+
+		return TransitionGraph.edgeGraphAsDot(label, TransitionGraph.asGraph(transitions),
+			transition -> {
+				Step step = stepByDestination.get(transition.destination());
+				return Transition.asLabel(transition) + "\n" + asMillis(step.execution().durationNanos())
+					+ (step.critical() ? "" : "\nslack " + asMillis(step.slackNanos()));
+			},
+			StateID::asLabel,
+			vertex -> isCritical(vertex, stepByDestination) ? HIGHLIGHTED : Collections.emptyMap(),
+			(from, to) -> isCritical(from, to, stepByDestination) ? HIGHLIGHTED : Collections.emptyMap());
+	}
+
+	private static final Map<String, String> HIGHLIGHTED = highlighted();
+
+	private static Map<String, String> highlighted() {
+		Map<String, String> ret = new LinkedHashMap<>();
+		ret.put("color", "red");
+		ret.put("penwidth", "2");
+		return Collections.unmodifiableMap(ret);
+	}
+
+	private static boolean isCritical(Vertex vertex, Map<StateID<?>, Step> stepByDestination) {
+		StateID<?> destination = vertex instanceof TransitionVertex
+			? ((TransitionVertex) vertex).transition().destination()
+			: ((StateVertex) vertex).stateId();
+		Step step = stepByDestination.get(destination);
+		return step != null && step.critical();
+	}
+
+	private static boolean isCritical(Vertex from, Vertex to, Map<StateID<?>, Step> stepByDestination) {
+		if (from instanceof TransitionVertex) {
+			return isCritical(from, stepByDestination);
+		}
+		Step step = stepByDestination.get(((TransitionVertex) to).transition().destination());
+		return step != null && step.critical() && step.criticalSource().equals(Optional.of(((StateVertex) from).stateId()));
+	}
+
+	private static String asMessage(Step step) {
+		return Transition.asLabel(step.transition()) + " -> " + TransitionGraph.asMessage(step.transition().destination());
+	}
+
+	private static String asMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0);
+	}
+
+	@Value.Immutable
+	public interface Step {
+		@Value.Parameter
+		Transition<?> transition();
+
+		@Value.Parameter
+		Execution execution();
+
+		/**
+		 * sum of durations of the longest chain of executed transitions up to and including this one
+		 */
+		@Value.Parameter
+		long earliestFinishNanos();
+
+		@Value.Parameter
+		long slackNanos();
+
+		/**
+		 * executed source with the latest earliest finish
+		 */
+		@Value.Parameter
+		Optional<StateID<?>> criticalSource();
+
+		@Value.Parameter
+		boolean critical();
+	}
+
+	/**
+	 * @param transitions all transitions of the walker
+	 * @param executions executed transitions, other phases are ignored
+	 */
+	public static CriticalPath of(List<? extends Transition<?>> transitions, Collection<Execution> executions) {
+		Map<StateID<?>, Transition<?>> transitionByDestination = new HashMap<>();
+		transitions.forEach(it -> transitionByDestination.put(it.destination(), it));
+
+		// a transition ends after all its sources did, so this is a topological order
+		List<Execution> ordered = executions.stream()
+			.filter(it -> it.phase() == Execution.Phase.TRANSITION && !it.failed())
+			.filter(it -> transitionByDestination.containsKey(it.state()))
+			.sorted(Comparator.comparingLong(Execution::endNanos))
+			.collect(Collectors.toList());
+
+		Map<StateID<?>, Long> earliestFinish = new HashMap<>();
+		Map<StateID<?>, StateID<?>> criticalSource = new HashMap<>();
+		Map<StateID<?>, List<StateID<?>>> consumers = new HashMap<>();
+
+		for (Execution execution : ordered) {
+			StateID<?> destination = execution.state();
+			long start = 0L;
+			for (StateID<?> source : transitionByDestination.get(destination).sources()) {
+				Long sourceFinish = earliestFinish.get(source);
+				if (sourceFinish != null) {
+					consumers.computeIfAbsent(source, id -> new ArrayList<>()).add(destination);
+					if (sourceFinish > start || !criticalSource.containsKey(destination)) {
+						start = Math.max(start, sourceFinish);
+						criticalSource.put(destination, source);
+					}
+				}
+			}
+			earliestFinish.put(destination, start + execution.durationNanos());
+		}
+
+		long length = earliestFinish.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+
+		Map<StateID<?>, Long> latestFinish = new HashMap<>();
+		Map<StateID<?>, Execution> executionByDestination = new HashMap<>();
+		ordered.forEach(it -> executionByDestination.put(it.state(), it));
+		for (int i = ordered.size() - 1; i >= 0; i--) {
+			StateID<?> destination = ordered.get(i).state();
+			long latest = consumers.getOrDefault(destination, Collections.emptyList()).stream()
+				.mapToLong(consumer -> latestFinish.get(consumer) - executionByDestination.get(consumer).durationNanos())
+				.min()
+				.orElse(length);
+			latestFinish.put(destination, latest);
+		}
+
+		Set<StateID<?>> path = new HashSet<>();
+		ordered.stream()
+			.map(Execution::state)
+			.max(Comparator.comparingLong(earliestFinish::get))
+			.ifPresent(last -> {
+				StateID<?> current = last;
+				while (current != null) {
+					path.add(current);
+					current = criticalSource.get(current);
+				}
+			});
+
+		List<Step> steps = ordered.stream()
+			.map(execution -> ImmutableStep.of(
+				transitionByDestination.get(execution.state()),
+				execution,
+				earliestFinish.get(execution.state()),
+				latestFinish.get(execution.state()) - earliestFinish.get(execution.state()),
+				Optional.ofNullable(criticalSource.get(execution.state())),
+				path.contains(execution.state())))
+			.collect(Collectors.toList());
+
+		return ImmutableCriticalPath.of(steps);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.StateID;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * one transition or tear down, times from {@link System#nanoTime()}
+ */
+@Value.Immutable
+public interface Execution {
+
+	enum Phase {
+		TRANSITION,
+		TEAR_DOWN
+	}
+
+	@Value.Parameter
+	Phase phase();
+
+	@Value.Parameter
+	StateID<?> state();
+
+	/**
+	 * name of the thread which started the execution
+	 */
+	@Value.Parameter
+	String thread();
+
+	@Value.Parameter
+	long startNanos();
+
+	@Value.Parameter
+	long endNanos();
+
+	@Value.Parameter
+	Optional<Throwable> error();
+
+	@Value.Auxiliary
+	default long durationNanos() {
+		return endNanos() - startNanos();
+	}
+
+	@Value.Auxiliary
+	default boolean failed() {
+		return error().isPresent();
+	}
+
+	static Execution of(Phase phase, StateID<?> state, String thread, long startNanos, long endNanos, Optional<Throwable> error) {
+		return ImmutableExecution.of(phase, state, thread, startNanos, endNanos, error);
+	}
+}
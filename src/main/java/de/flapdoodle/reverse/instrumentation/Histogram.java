@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * thread safe latency histogram with power of two buckets,
+ * percentiles are the upper bound of the matching bucket
+ */
+public final class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+	public void record(long durationNanos, boolean failed) {
+		long nanos = Math.max(0L, durationNanos);
+		buckets.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		if (failed) {
+			failures.increment();
+		}
+		totalNanos.add(nanos);
+		minNanos.accumulate(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	public long failures() {
+		return failures.sum();
+	}
+
+	public long totalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long minNanos() {
+		return count() > 0 ? minNanos.get() : 0L;
+	}
+
+	public long maxNanos() {
+		return maxNanos.get();
+	}
+
+	public long meanNanos() {
+		long count = count();
+		return count > 0 ? totalNanos() / count : 0L;
+	}
+
+	/**
+	 * @param quantile between 0 and 1
+	 */
+	public long percentileNanos(double quantile) {
+		if (quantile < 0.0 || quantile > 1.0) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+		}
+		long count = count();
+		if (count == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), maxNanos());
+			}
+		}
+		return maxNanos();
+	}
+
+	@Override
+	public String toString() {
+		return "Histogram{count=" + count()
+			+ ", failures=" + failures()
+			+ ", min=" + minNanos()
+			+ ", p50=" + percentileNanos(0.5)
+			+ ", p99=" + percentileNanos(0.99)
+			+ ", max=" + maxNanos()
+			+ "}";
+	}
+
+	private static int bucketOf(long nanos) {
+		return nanos == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos) - 1;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		return bucket >= BUCKETS - 2 ? Long.MAX_VALUE : (2L << bucket) - 1;
+	}
+}
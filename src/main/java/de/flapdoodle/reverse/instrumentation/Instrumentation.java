@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+
+/**
+ * timing hooks around each transition and each tear down, passed to the walker like any other listener,
+ * hooks may be called concurrently and MUST NOT throw any exceptions
+ */
+public interface Instrumentation extends Listener {
+
+	@Override
+	default <T> void onStateReached(StateID<T> stateID, T value) {
+	}
+
+	@Override
+	default <T> void onStateTearDown(StateID<T> state, T value) {
+	}
+
+	/**
+	 * called in the thread which starts the execution
+	 */
+	default void onStart(Execution.Phase phase, StateID<?> state, long startNanos) {
+	}
+
+	void onEnd(Execution execution);
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.StateID;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * collects one latency histogram per state for transitions and one for tear downs
+ */
+public final class LatencyHistograms implements Instrumentation {
+
+	private final ConcurrentMap<StateID<?>, Histogram> transitions = new ConcurrentHashMap<>();
+	private final ConcurrentMap<StateID<?>, Histogram> tearDowns = new ConcurrentHashMap<>();
+
+	@Override
+	public void onEnd(Execution execution) {
+		Map<StateID<?>, Histogram> histograms = execution.phase() == Execution.Phase.TRANSITION
+			? transitions
+			: tearDowns;
+		histograms.computeIfAbsent(execution.state(), ignore -> new Histogram())
+			.record(execution.durationNanos(), execution.failed());
+	}
+
+	public Optional<Histogram> transitionOf(StateID<?> state) {
+		return Optional.ofNullable(transitions.get(state));
+	}
+
+	public Optional<Histogram> tearDownOf(StateID<?> state) {
+		return Optional.ofNullable(tearDowns.get(state));
+	}
+
+	public Map<StateID<?>, Histogram> transitions() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(transitions));
+	}
+
+	public Map<StateID<?>, Histogram> tearDowns() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(tearDowns));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reflection.TypeInfo;
+import de.flapdoodle.reverse.AsyncTransition;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+@Value.Immutable
+public abstract class AsyncStart<D> implements AsyncTransition<D>, HasLabel {
+	public abstract StateID<D> destination();
+
+	protected abstract Supplier<? extends CompletionStage<State<D>>> action();
+
+	@Override
+	@Value.Default
+	public String transitionLabel() {
+		return "AsyncStart";
+	}
+
+	@Override
+	@Value.Lazy
+	public Set<StateID<?>> sources() {
+		return Collections.emptySet();
+	}
+
+	@Override
+	@Value.Auxiliary
+	public CompletionStage<State<D>> resultAsync(StateLookup lookup) {
+		return action().get();
+	}
+
+	public static <D> ImmutableAsyncStart<D> of(StateID<D> dest, Supplier<? extends CompletionStage<State<D>>> action) {
+		return ImmutableAsyncStart.<D>builder()
+			.destination(dest)
+			.action(action)
+			.build();
+	}
+
+	public static <D> WithDestination<D> to(StateID<D> dest) {
+		return new WithDestination<>(dest);
+	}
+
+	public static <D> WithDestination<D> to(Class<D> destType) {
+		return to(StateID.of(destType));
+	}
+
+	public static <D> WithDestination<D> to(TypeInfo<D> destType) {
+		return to(StateID.of(destType));
+	}
+
+	public static class WithDestination<T> {
+		private final StateID<T> state;
+
+		private WithDestination(StateID<T> state) {
+			this.state = state;
+		}
+
+		public ImmutableAsyncStart<T> providedBy(Supplier<? extends CompletionStage<T>> valueSupplier) {
+			return with(() -> valueSupplier.get().thenApply(State::of));
+		}
+
+		public ImmutableAsyncStart<T> with(Supplier<? extends CompletionStage<State<T>>> supplier) {
+			return AsyncStart.of(state, supplier);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.checks.Preconditions;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * content addressed files in a local directory, least recently used entries are removed if the size limit is exceeded,
+ * can be shared between jvm runs, entries are decoded without further checks, so everyone who can write into the directory
+ * decides what is read
+ */
+public final class DiskCache {
+
+	private static final String SUFFIX = ".entry";
+
+	private final Path directory;
+	private final long maxBytes;
+	private final LongSupplier currentTimeMillis;
+
+	private DiskCache(Path directory, long maxBytes, LongSupplier currentTimeMillis) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.currentTimeMillis = currentTimeMillis;
+	}
+
+	public static DiskCache of(Path directory, long maxBytes) throws IOException {
+		return of(directory, maxBytes, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param currentTimeMillis last usage of an entry, stored as modification time of its file
+	 */
+	static DiskCache of(Path directory, long maxBytes, LongSupplier currentTimeMillis) throws IOException {
+		Preconditions.checkArgument(maxBytes > 0, "maxBytes must be greater than 0: %s", maxBytes);
+		return new DiskCache(Files.createDirectories(directory), maxBytes, currentTimeMillis);
+	}
+
+	public Path directory() {
+		return directory;
+	}
+
+	public Optional<byte[]> get(String key) throws IOException {
+		Path file = fileOf(key);
+		try {
+			byte[] content = Files.readAllBytes(file);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(currentTimeMillis.getAsLong()));
+			return Optional.of(content);
+		}
+		catch (NoSuchFileException nx) {
+			return Optional.empty();
+		}
+	}
+
+	public void put(String key, byte[] content) throws IOException {
+		Path temp = Files.createTempFile(directory, key, ".tmp");
+		try {
+			Files.write(temp, content);
+			Files.setLastModifiedTime(temp, FileTime.fromMillis(currentTimeMillis.getAsLong()));
+			Files.move(temp, fileOf(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+		evict();
+	}
+
+	private void evict() throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.filter(it -> it.getFileName().toString().endsWith(SUFFIX)).collect(Collectors.toList())) {
+				try {
+					entries.add(new Entry(file, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+				}
+				catch (NoSuchFileException nx) {
+					// removed by someone else
+				}
+			}
+		}
+
+		long size = entries.stream().mapToLong(it -> it.size).sum();
+		if (size > maxBytes) {
+			entries.sort(Comparator.comparingLong(it -> it.lastUsed));
+			for (Entry entry : entries) {
+				if (size <= maxBytes) {
+					break;
+				}
+				Files.deleteIfExists(entry.file);
+				size -= entry.size;
+			}
+		}
+	}
+
+	private Path fileOf(String key) {
+		Preconditions.checkArgument(key.matches("[a-zA-Z0-9_-]+"), "invalid key: %s", key);
+		return directory.resolve(key + SUFFIX);
+	}
+
+	private static final class Entry {
+		private final Path file;
+		private final long size;
+		private final long lastUsed;
+
+		private Entry(Path file, long size, long lastUsed) {
+			this.file = file;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * converts cached values from and to bytes
+	 */
+	public interface Codec<T> {
+		byte[] encode(T value) throws IOException;
+
+		T decode(byte[] content) throws IOException;
+
+		static Codec<String> utf8() {
+			return new Codec<String>() {
+				@Override
+				public byte[] encode(String value) {
+					return value.getBytes(StandardCharsets.UTF_8);
+				}
+
+				@Override
+				public String decode(byte[] content) {
+					return new String(content, StandardCharsets.UTF_8);
+				}
+			};
+		}
+
+		/**
+		 * uses java serialization, decoding a cached entry can create instances of any class on the classpath,
+		 * so use this only with a cache directory nobody else can write to
+		 */
+		static <T extends Serializable> Codec<T> serializable(Class<T> type) {
+			return new Codec<T>() {
+				@Override
+				public byte[] encode(T value) throws IOException {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					try (ObjectOutputStream objects = new ObjectOutputStream(out)) {
+						objects.writeObject(value);
+					}
+					return out.toByteArray();
+				}
+
+				@Override
+				public T decode(byte[] content) throws IOException {
+					try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(content))) {
+						return type.cast(objects.readObject());
+					}
+					catch (ClassNotFoundException | ClassCastException cx) {
+						throw new IOException("could not decode " + type, cx);
+					}
+				}
+			};
+		}
+	}
+}
@@ -97,6 +97,14 @@ public abstract class Join<L, R, D> implements Transition<D>, HasLabel {
 			this.right = right;
 		}
 
+		public <S3> Join3.WithSources<L, R, S3> and(StateID<S3> third) {
+			return new Join3.WithSources<>(left, right, third);
+		}
+
+		public <S3> Join3.WithSources<L, R, S3> and(Class<S3> third) {
+			return and(StateID.of(third));
+		}
+
 		public <D> WithDestination<L, R, D> state(StateID<D> destination) {
 			return new WithDestination<>(left, right, destination);
 		}
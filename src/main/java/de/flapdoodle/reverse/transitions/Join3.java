@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * joins three states in one transition, created with Join.given(..).and(..)...
+ */
+@Value.Immutable
+public abstract class Join3<S1, S2, S3, D> implements Transition<D>, HasLabel {
+	public abstract StateID<S1> first();
+
+	public abstract StateID<S2> second();
+
+	public abstract StateID<S3> third();
+
+	public abstract StateID<D> destination();
+
+	protected abstract Action<S1, S2, S3, State<D>> action();
+
+	@Value.Default
+	@Override
+	public String transitionLabel() {
+		return "Join";
+	}
+
+	@Override
+	@Value.Lazy
+	public Set<StateID<?>> sources() {
+		return new HashSet<>(Arrays.asList(first(), second(), third()));
+	}
+
+	@Override
+	@Value.Auxiliary
+	public State<D> result(StateLookup lookup) {
+		return action().apply(lookup.of(first()), lookup.of(second()), lookup.of(third()));
+	}
+
+	public static <S1, S2, S3, D> ImmutableJoin3<S1, S2, S3, D> of(StateID<S1> first, StateID<S2> second, StateID<S3> third, StateID<D> dest,
+		Action<S1, S2, S3, State<D>> action) {
+		return ImmutableJoin3.<S1, S2, S3, D>builder()
+			.first(first)
+			.second(second)
+			.third(third)
+			.destination(dest)
+			.action(action)
+			.build();
+	}
+
+	@FunctionalInterface
+	public interface Action<S1, S2, S3, R> {
+		R apply(S1 first, S2 second, S3 third);
+	}
+
+	public static class WithSources<S1, S2, S3> {
+		private final StateID<S1> first;
+		private final StateID<S2> second;
+		private final StateID<S3> third;
+
+		public WithSources(StateID<S1> first, StateID<S2> second, StateID<S3> third) {
+			this.first = first;
+			this.second = second;
+			this.third = third;
+		}
+
+		public <S4> Join4.WithSources<S1, S2, S3, S4> and(StateID<S4> fourth) {
+			return new Join4.WithSources<>(first, second, third, fourth);
+		}
+
+		public <S4> Join4.WithSources<S1, S2, S3, S4> and(Class<S4> fourth) {
+			return and(StateID.of(fourth));
+		}
+
+		public <D> WithDestination<S1, S2, S3, D> state(StateID<D> destination) {
+			return new WithDestination<>(first, second, third, destination);
+		}
+
+		public <D> WithDestination<S1, S2, S3, D> state(Class<D> destination) {
+			return state(StateID.of(destination));
+		}
+	}
+
+	public static class WithDestination<S1, S2, S3, D> {
+		private final StateID<S1> first;
+		private final StateID<S2> second;
+		private final StateID<S3> third;
+		private final StateID<D> destination;
+
+		public WithDestination(StateID<S1> first, StateID<S2> second, StateID<S3> third, StateID<D> destination) {
+			this.first = first;
+			this.second = second;
+			this.third = third;
+			this.destination = destination;
+		}
+
+		public ImmutableJoin3<S1, S2, S3, D> deriveBy(Action<S1, S2, S3, D> action) {
+			return with((a, b, c) -> State.of(action.apply(a, b, c)));
+		}
+
+		public ImmutableJoin3<S1, S2, S3, D> with(Action<S1, S2, S3, State<D>> action) {
+			return Join3.of(first, second, third, destination, action);
+		}
+	}
+}
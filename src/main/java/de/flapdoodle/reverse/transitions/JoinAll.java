@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * joins any number of states in one transition, the action reads them from a lookup limited to the sources
+ */
+@Value.Immutable
+public abstract class JoinAll<D> implements Transition<D>, HasLabel {
+	@Override
+	public abstract Set<StateID<?>> sources();
+
+	public abstract StateID<D> destination();
+
+	protected abstract Function<StateLookup, State<D>> action();
+
+	@Value.Default
+	@Override
+	public String transitionLabel() {
+		return "Join";
+	}
+
+	@Override
+	@Value.Auxiliary
+	public State<D> result(StateLookup lookup) {
+		return action().apply(lookup.limitedTo(sources()));
+	}
+
+	@Value.Check
+	protected void check() {
+		Preconditions.checkArgument(!sources().isEmpty(), "no sources");
+	}
+
+	public static <D> ImmutableJoinAll<D> of(Set<StateID<?>> sources, StateID<D> dest, Function<StateLookup, State<D>> action) {
+		return ImmutableJoinAll.<D>builder()
+			.sources(sources)
+			.destination(dest)
+			.action(action)
+			.build();
+	}
+
+	public static WithSources given(StateID<?>... sources) {
+		return given(new LinkedHashSet<>(Arrays.asList(sources)));
+	}
+
+	public static WithSources given(Set<StateID<?>> sources) {
+		return new WithSources(sources);
+	}
+
+	public static class WithSources {
+		private final Set<StateID<?>> sources;
+
+		private WithSources(Set<StateID<?>> sources) {
+			this.sources = sources;
+		}
+
+		public <D> WithDestination<D> state(StateID<D> destination) {
+			return new WithDestination<>(sources, destination);
+		}
+
+		public <D> WithDestination<D> state(Class<D> destination) {
+			return state(StateID.of(destination));
+		}
+	}
+
+	public static class WithDestination<D> {
+		private final Set<StateID<?>> sources;
+		private final StateID<D> destination;
+
+		private WithDestination(Set<StateID<?>> sources, StateID<D> destination) {
+			this.sources = sources;
+			this.destination = destination;
+		}
+
+		public ImmutableJoinAll<D> deriveBy(Function<StateLookup, D> action) {
+			return with(action.andThen(State::of));
+		}
+
+		public ImmutableJoinAll<D> with(Function<StateLookup, State<D>> action) {
+			return JoinAll.of(sources, destination, action);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.hash.Hasher;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * derive with results cached on disk, the action is skipped if there is a cached result for the same key,
+ * so the action must be deterministic and the result can not have a tear down
+ */
+@Value.Immutable
+public abstract class MemoizedDerive<S, D> implements Transition<D>, HasLabel {
+	public abstract StateID<S> source();
+
+	public abstract StateID<D> destination();
+
+	protected abstract DiskCache cache();
+
+	protected abstract DiskCache.Codec<D> codec();
+
+	/**
+	 * same key must mean same result, also in other jvm runs, so it must not depend on identity
+	 */
+	protected abstract Function<S, String> key();
+
+	protected abstract Function<S, D> action();
+
+	@Override
+	@Value.Default
+	public String transitionLabel() {
+		return "MemoizedDerive";
+	}
+
+	@Override
+	@Value.Lazy
+	public Set<StateID<?>> sources() {
+		return Collections.singleton(source());
+	}
+
+	@Override
+	@Value.Auxiliary
+	public State<D> result(StateLookup lookup) {
+		S source = lookup.of(source());
+		String key = Hasher.instance()
+			.update(StateID.asLabel(destination()))
+			.update("\u0000")
+			.update(key().apply(source))
+			.hashAsString();
+
+		Optional<D> cached = cached(key);
+		if (cached.isPresent()) {
+			return State.of(cached.get());
+		}
+
+		D value = action().apply(source);
+		try {
+			cache().put(key, codec().encode(value));
+		}
+		catch (IOException | RuntimeException ex) {
+			new RuntimeException("could not cache result of " + StateID.asLabel(destination()), ex).printStackTrace();
+		}
+		return State.of(value);
+	}
+
+	private Optional<D> cached(String key) {
+		try {
+			Optional<byte[]> content = cache().get(key);
+			return content.isPresent()
+				? Optional.of(codec().decode(content.get()))
+				: Optional.empty();
+		}
+		catch (IOException | RuntimeException ex) {
+			// broken entries are replaced
+			return Optional.empty();
+		}
+	}
+
+	public static <D> WithSource<D> given(StateID<D> source) {
+		return new WithSource<D>(source);
+	}
+
+	public static <D> WithSource<D> given(Class<D> sourceType) {
+		return given(StateID.of(sourceType));
+	}
+
+	public static class WithSource<S> {
+		private final StateID<S> source;
+		private WithSource(StateID<S> source) {
+			this.source = source;
+		}
+
+		public <D> WithDestination<S, D> state(StateID<D> destination) {
+			return new WithDestination<>(source, destination);
+		}
+
+		public <D> WithDestination<S, D> state(Class<D> destination) {
+			return state(StateID.of(destination));
+		}
+	}
+
+	public static class WithDestination<S, D> {
+		private final StateID<S> source;
+		private final StateID<D> destination;
+
+		private WithDestination(StateID<S> source, StateID<D> destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+
+		public WithCache<S, D> cachedIn(DiskCache cache, DiskCache.Codec<D> codec) {
+			return new WithCache<>(source, destination, cache, codec);
+		}
+	}
+
+	public static class WithCache<S, D> {
+		private final StateID<S> source;
+		private final StateID<D> destination;
+		private final DiskCache cache;
+		private final DiskCache.Codec<D> codec;
+
+		private WithCache(StateID<S> source, StateID<D> destination, DiskCache cache, DiskCache.Codec<D> codec) {
+			this.source = source;
+			this.destination = destination;
+			this.cache = cache;
+			this.codec = codec;
+		}
+
+		public WithKey<S, D> keyedBy(Function<S, String> key) {
+			return new WithKey<>(source, destination, cache, codec, key);
+		}
+	}
+
+	public static class WithKey<S, D> {
+		private final StateID<S> source;
+		private final StateID<D> destination;
+		private final DiskCache cache;
+		private final DiskCache.Codec<D> codec;
+		private final Function<S, String> key;
+
+		private WithKey(StateID<S> source, StateID<D> destination, DiskCache cache, DiskCache.Codec<D> codec, Function<S, String> key) {
+			this.source = source;
+			this.destination = destination;
+			this.cache = cache;
+			this.codec = codec;
+			this.key = key;
+		}
+
+		public ImmutableMemoizedDerive<S, D> deriveBy(Function<S, D> action) {
+			return ImmutableMemoizedDerive.<S, D>builder()
+				.source(source)
+				.destination(destination)
+				.cache(cache)
+				.codec(codec)
+				.key(key)
+				.action(action)
+				.build();
+		}
+	}
+}
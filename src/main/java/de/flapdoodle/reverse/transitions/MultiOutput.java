@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.reverse.*;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * one execution reaches all outputs, each output is a state on its own
+ */
+@Value.Immutable
+public abstract class MultiOutput implements MultiOutputTransition, HasLabel {
+	@Override
+	public abstract Set<StateID<?>> sources();
+
+	@Override
+	public abstract Set<StateID<?>> outputs();
+
+	protected abstract Function<StateLookup, Outputs> action();
+
+	@Override
+	@Value.Lazy
+	public StateID<Outputs> destination() {
+		return MultiOutputTransition.destinationOf(outputs());
+	}
+
+	@Value.Default
+	@Override
+	public String transitionLabel() {
+		return "MultiOutput";
+	}
+
+	@Override
+	@Value.Auxiliary
+	public State<Outputs> result(StateLookup lookup) {
+		return MultiOutputTransition.checked(outputs(), action().apply(lookup));
+	}
+
+	@Value.Check
+	protected void check() {
+		Preconditions.checkArgument(!outputs().isEmpty(), "no outputs");
+	}
+
+	public static ImmutableMultiOutput of(Set<StateID<?>> sources, Set<StateID<?>> outputs, Function<StateLookup, Outputs> action) {
+		return ImmutableMultiOutput.builder()
+			.sources(sources)
+			.outputs(outputs)
+			.action(action)
+			.build();
+	}
+
+	public static WithSources given(StateID<?>... sources) {
+		return new WithSources(new LinkedHashSet<>(Arrays.asList(sources)));
+	}
+
+	public static class WithSources {
+		private final Set<StateID<?>> sources;
+
+		private WithSources(Set<StateID<?>> sources) {
+			this.sources = sources;
+		}
+
+		public WithOutputs outputs(StateID<?>... outputs) {
+			return new WithOutputs(sources, new LinkedHashSet<>(Arrays.asList(outputs)));
+		}
+	}
+
+	public static class WithOutputs {
+		private final Set<StateID<?>> sources;
+		private final Set<StateID<?>> outputs;
+
+		private WithOutputs(Set<StateID<?>> sources, Set<StateID<?>> outputs) {
+			this.sources = sources;
+			this.outputs = outputs;
+		}
+
+		public ImmutableMultiOutput with(Function<StateLookup, Outputs> action) {
+			return MultiOutput.of(sources, outputs, action);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * java flight recorder events, an event is only created if it is enabled in the current recording
+ */
+final class FlightRecorder {
+
+	interface Span {
+		void end(boolean failed);
+	}
+
+	private static final Span NOOP = failed -> {
+	};
+
+	private FlightRecorder() {
+		// no instance
+	}
+
+	static Span walkerConstruction(int transitions) {
+		WalkerConstructionEvent event = new WalkerConstructionEvent();
+		if (!event.isEnabled()) {
+			return NOOP;
+		}
+		event.transitions = transitions;
+		event.begin();
+		return failed -> {
+			event.failed = failed;
+			event.commit();
+		};
+	}
+
+	static Span planning(Set<StateID<?>> destinations) {
+		PlanningEvent event = new PlanningEvent();
+		if (!event.isEnabled()) {
+			return NOOP;
+		}
+		event.destination = destinations.stream()
+			.map(StateID::asLabel)
+			.collect(Collectors.joining(", "));
+		event.begin();
+		return failed -> {
+			event.failed = failed;
+			event.commit();
+		};
+	}
+
+	static Span transition(Transition<?> transition) {
+		TransitionEvent event = new TransitionEvent();
+		if (!event.isEnabled()) {
+			return NOOP;
+		}
+		event.transition = Transition.asLabel(transition);
+		event.destination = StateID.asLabel(transition.destination());
+		event.begin();
+		return failed -> {
+			event.failed = failed;
+			event.commit();
+		};
+	}
+
+	static Span tearDown(StateID<?> state) {
+		TearDownEvent event = new TearDownEvent();
+		if (!event.isEnabled()) {
+			return NOOP;
+		}
+		event.state = StateID.asLabel(state);
+		event.begin();
+		return failed -> {
+			event.failed = failed;
+			event.commit();
+		};
+	}
+
+	@Name("de.flapdoodle.reverse.WalkerConstruction")
+	@Label("Walker Construction")
+	@Description("TransitionWalker.with(...), including loop detection")
+	@Category("Flapdoodle Reverse")
+	@StackTrace(false)
+	static final class WalkerConstructionEvent extends Event {
+		@Label("Transitions")
+		int transitions;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	@Name("de.flapdoodle.reverse.Planning")
+	@Label("Planning")
+	@Description("execution plan for a destination, computed once per walker")
+	@Category("Flapdoodle Reverse")
+	@StackTrace(false)
+	static final class PlanningEvent extends Event {
+		@Label("Destination")
+		String destination;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	@Name("de.flapdoodle.reverse.Transition")
+	@Label("Transition")
+	@Category("Flapdoodle Reverse")
+	@StackTrace(false)
+	static final class TransitionEvent extends Event {
+		@Label("Transition")
+		String transition;
+
+		@Label("Destination")
+		String destination;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	@Name("de.flapdoodle.reverse.TearDown")
+	@Label("Tear Down")
+	@Category("Flapdoodle Reverse")
+	@StackTrace(false)
+	static final class TearDownEvent extends Event {
+		@Label("State")
+		String state;
+
+		@Label("Failed")
+		boolean failed;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactGraphTest {
+	private final StateID<String> a = StateID.of("a", String.class);
+	private final StateID<String> b = StateID.of("b", String.class);
+	private final StateID<String> c = StateID.of("c", String.class);
+
+	@Test
+	void statesAndTransitionsAreIndexed() {
+		Start<String> start = Start.to(a).initializedWith("a");
+		Derive<String, String> derive = Derive.given(a).state(b).deriveBy(it -> it);
+		Join<String, String, String> join = Join.given(a).and(b).state(c).deriveBy((l, r) -> l + r);
+
+		CompactGraph testee = CompactGraph.of(Arrays.asList(start, derive, join));
+
+		assertThat(testee.stateCount()).isEqualTo(3);
+		assertThat(testee.transitionCount()).isEqualTo(3);
+		assertThat(testee.indexOf(StateID.of("unknown", String.class))).isEqualTo(-1);
+
+		int ia = testee.indexOf(a);
+		int ib = testee.indexOf(b);
+		int ic = testee.indexOf(c);
+
+		assertThat(testee.state(ia)).isEqualTo(a);
+		assertThat(testee.transition(testee.producerOf(ic))).isEqualTo(join);
+		assertThat(testee.destinationOf(testee.producerOf(ib))).isEqualTo(ib);
+
+		assertThat(sourcesOf(testee, testee.producerOf(ic))).containsExactlyInAnyOrder(a, b);
+		assertThat(sourcesOf(testee, testee.producerOf(ia))).isEmpty();
+		assertThat(consumersOf(testee, ia)).containsExactlyInAnyOrder(derive, join);
+		assertThat(consumersOf(testee, ic)).isEmpty();
+
+		assertThat(testee.isAcyclic()).isTrue();
+	}
+
+	@Test
+	void loopIsDetected() {
+		List<Transition<?>> transitions = Arrays.asList(
+			Start.to(a).initializedWith("a"),
+			Join.given(a).and(c).state(b).deriveBy((l, r) -> l + r),
+			Derive.given(b).state(c).deriveBy(it -> it)
+		);
+
+		assertThat(CompactGraph.of(transitions).isAcyclic()).isFalse();
+
+		assertThatThrownBy(() -> TransitionWalker.with(transitions))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("loops are not supported");
+	}
+
+	private static List<StateID<?>> sourcesOf(CompactGraph graph, int transition) {
+		List<StateID<?>> ret = new ArrayList<>();
+		for (int i = graph.sourcesStart(transition); i < graph.sourcesEnd(transition); i++) {
+			ret.add(graph.state(graph.source(i)));
+		}
+		return ret;
+	}
+
+	private static List<Transition<?>> consumersOf(CompactGraph graph, int state) {
+		List<Transition<?>> ret = new ArrayList<>();
+		for (int i = graph.consumersStart(state); i < graph.consumersEnd(state); i++) {
+			ret.add(graph.transition(graph.consumer(i)));
+		}
+		return ret;
+	}
+}
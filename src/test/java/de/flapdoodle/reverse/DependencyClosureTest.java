@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DependencyClosureTest {
+
+	@Test
+	void closureContainsOnlyAncestorsOfDestination() {
+		StateID<String> a = StateID.of("a", String.class);
+		StateID<String> b = StateID.of("b", String.class);
+		StateID<String> c = StateID.of("c", String.class);
+		StateID<String> other = StateID.of("other", String.class);
+
+		Start<String> startA = Start.to(a).initializedWith("a");
+		Start<String> startB = Start.to(b).initializedWith("b");
+		Join<String, String, String> join = Join.given(a).and(b).state(c).deriveBy((l, r) -> l + r);
+		Derive<String, String> derive = Derive.given(c).state(other).deriveBy(it -> it);
+
+		TransitionWalker walker = Transitions.from(startA, startB, join, derive).walker();
+
+		DependencyClosure closure = walker.dependenciesOf(c);
+
+		assertThat(closure.destination()).isEqualTo(c);
+		assertThat(closure.states()).containsExactlyInAnyOrder(a, b, c);
+		assertThat(closure.transitions()).containsExactlyInAnyOrder(startA, startB, join);
+		assertThat(walker.dependenciesOf(c)).isSameAs(closure);
+
+		assertThatThrownBy(() -> walker.dependenciesOf(StateID.of("unknown", String.class)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("state State(unknown:String) is not part of this init process");
+	}
+
+	@Test
+	void longChainIsPlanned() {
+		int size = 3000;
+		List<Transition<?>> transitions = new ArrayList<>();
+		transitions.add(Start.to(chainState(0)).initializedWith(0));
+		for (int i = 1; i < size; i++) {
+			transitions.add(Derive.given(chainState(i - 1)).state(chainState(i)).deriveBy(it -> it + 1));
+		}
+
+		TransitionWalker walker = TransitionWalker.with(transitions);
+
+		// how planning scales is measured by PlanningBenchmark in the benchmarks module
+		DependencyClosure closure = walker.dependenciesOf(chainState(size - 1));
+
+		assertThat(closure.transitions()).hasSize(size);
+		assertThat(walker.dependenciesOf(chainState(size / 2)).transitions()).hasSize(size / 2 + 1);
+	}
+
+	private static StateID<Integer> chainState(int index) {
+		return StateID.of("state-" + index, Integer.class);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutionPlanTest {
+
+	@Test
+	void layersAndSourcesOfDestination() {
+		StateID<String> a = StateID.of("a", String.class);
+		StateID<String> b = StateID.of("b", String.class);
+		StateID<String> c = StateID.of("c", String.class);
+		StateID<String> unused = StateID.of("unused", String.class);
+		StateID<String> dest = StateID.of("dest", String.class);
+
+		Start<String> startB = Start.to(b).initializedWith("b");
+		Derive<String, String> deriveC = Derive.given(a).state(c).deriveBy(it -> it + "c");
+		Derive<String, String> deriveUnused = Derive.given(b).state(unused).deriveBy(it -> it + "?");
+		Join<String, String, String> join = Join.given(b).and(c).state(dest).deriveBy((l, r) -> l + r);
+
+		List<Transition<?>> transitions = Arrays.asList(startB, deriveC, deriveUnused, join);
+
+		ExecutionPlan plan = ExecutionPlan.of(CompactGraph.of(transitions), dest);
+
+		assertThat(plan.destination()).isEqualTo(dest);
+		assertThat(plan.sources()).containsExactly(a);
+		assertThat(plan.layers()).containsExactly(
+			Arrays.asList(startB),
+			Arrays.asList(deriveC),
+			Arrays.asList(join)
+		);
+		assertThat(plan.missingSources(StateID.setOf(a)::contains)).isEmpty();
+	}
+
+	@Test
+	void planIsComputedOncePerDestination() {
+		StateID<String> start = StateID.of("start", String.class);
+		StateID<String> end = StateID.of("end", String.class);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(end).deriveBy(it -> it + " end")
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> first = walker.initState(end)) {
+			assertThat(first.current()).isEqualTo("start end");
+		}
+
+		ExecutionPlan plan = walker.planOf(end);
+
+		try (TransitionWalker.ReachedState<String> second = walker.initState(end)) {
+			assertThat(second.current()).isEqualTo("start end");
+		}
+
+		assertThat(walker.planOf(end)).isSameAs(plan);
+		assertThat(walker.planOf(start)).isNotSameAs(plan);
+	}
+
+	@Test
+	void mappedTransitionReusesPlanOfWrappedWalker() {
+		StateID<String> inner = StateID.of("inner", String.class);
+		StateID<String> innerEnd = StateID.of("inner-end", String.class);
+		StateID<String> end = StateID.of("end", String.class);
+
+		TransitionWalker wrapped = Transitions.from(
+			Derive.given(inner).state(innerEnd).deriveBy(it -> it + " inner")
+		).walker();
+
+		TransitionWalker.MappedWrapper<String> mapped = (TransitionWalker.MappedWrapper<String>) wrapped.asTransitionTo(TransitionMapping
+			.builder("wrapped", StateMapping.of(innerEnd, end))
+			.addMappings(StateMapping.of(StateID.of(String.class), inner))
+			.build());
+
+		ExecutionPlan plan = wrapped.planOf(innerEnd);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(String.class).initializedWith("start"),
+			mapped
+		).walker();
+
+		for (int i = 0; i < 2; i++) {
+			try (TransitionWalker.ReachedState<String> state = walker.initState(end)) {
+				assertThat(state.current()).isEqualTo("start inner");
+			}
+		}
+
+		assertThat(mapped.walker().planOf(innerEnd)).isSameAs(plan);
+		assertThat(mapped.sources()).containsExactly(StateID.of(String.class));
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedStatesTest {
+	private final StateID<String> server = StateID.of("server", String.class);
+	private final StateID<String> client = StateID.of("client", String.class);
+
+	@Test
+	void sharedStateIsInitializedOnceAndTornDownWithLastReference() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		AtomicInteger stopped = new AtomicInteger();
+		AtomicInteger clients = new AtomicInteger();
+
+		SharedStates sharedStates = SharedStates.of(server);
+		TransitionWalker walker = Transitions.from(
+			Start.to(server).with(() -> {
+				sleep(20);
+				return State.of("server#" + started.incrementAndGet(), ignore -> stopped.incrementAndGet());
+			}),
+			Derive.given(server).state(client).deriveBy(s -> s + " client#" + clients.incrementAndGet())
+		).walker()
+			.withSharedStates(sharedStates);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch ready = new CountDownLatch(threads);
+			List<Future<TransitionWalker.ReachedState<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					ready.countDown();
+					ready.await();
+					return walker.initState(client);
+				}));
+			}
+
+			List<TransitionWalker.ReachedState<String>> reached = new ArrayList<>();
+			for (Future<TransitionWalker.ReachedState<String>> future : futures) {
+				reached.add(future.get(10, TimeUnit.SECONDS));
+			}
+
+			assertThat(started.get()).isEqualTo(1);
+			assertThat(clients.get()).isEqualTo(threads);
+			assertThat(reached).allSatisfy(it -> assertThat(it.current()).startsWith("server#1 client#"));
+			assertThat(sharedStates.referenceCount(server)).isEqualTo(threads);
+
+			for (int i = 0; i < threads - 1; i++) {
+				reached.get(i).close();
+			}
+			assertThat(stopped.get()).isZero();
+			assertThat(sharedStates.referenceCount(server)).isEqualTo(1);
+
+			reached.get(threads - 1).close();
+			assertThat(stopped.get()).isEqualTo(1);
+			assertThat(sharedStates.referenceCount(server)).isZero();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		try (TransitionWalker.ReachedState<String> again = walker.initState(client)) {
+			assertThat(again.current()).startsWith("server#2 ");
+		}
+		assertThat(stopped.get()).isEqualTo(2);
+	}
+
+	@Test
+	void failedInitializationIsNotShared() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		SharedStates sharedStates = SharedStates.of(server);
+		TransitionWalker walker = Transitions.from(
+			Start.to(server).with(() -> {
+				if (attempts.incrementAndGet() == 1) {
+					throw new RuntimeException("first attempt failed");
+				}
+				return State.of("server");
+			})
+		).walker()
+			.withSharedStates(sharedStates);
+
+		assertThatThrownBy(() -> walker.initState(server))
+			.hasRootCauseMessage("first attempt failed");
+		assertThat(sharedStates.referenceCount(server)).isZero();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(server)) {
+			assertThat(state.current()).isEqualTo("server");
+			assertThat(sharedStates.referenceCount(server)).isEqualTo(1);
+		}
+		assertThat(sharedStates.referenceCount(server)).isZero();
+	}
+
+	@Test
+	void sharedStateMustNotDependOnStatesWhichAreNotShared() {
+		StateID<String> distribution = StateID.of("distribution", String.class);
+		Transitions transitions = Transitions.from(
+			Start.to(distribution).initializedWith("distribution"),
+			Derive.given(distribution).state(server).deriveBy(d -> "server of " + d)
+		);
+
+		assertThatThrownBy(() -> transitions.walker().withSharedStates(SharedStates.of(server)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("depends on states which are not shared")
+			.hasMessageContaining("distribution");
+
+		AtomicInteger extracted = new AtomicInteger();
+		SharedStates sharedStates = SharedStates.of(distribution, server);
+		TransitionWalker walker = Transitions.from(
+			Start.to(distribution).with(() -> State.of("distribution#" + extracted.incrementAndGet())),
+			Derive.given(distribution).state(server).deriveBy(d -> "server of " + d)
+		).walker()
+			.withSharedStates(sharedStates);
+
+		try (TransitionWalker.ReachedState<String> first = walker.initState(server)) {
+			try (TransitionWalker.ReachedState<String> second = walker.initState(server)) {
+				assertThat(second.current()).isEqualTo(first.current()).isEqualTo("server of distribution#1");
+				assertThat(sharedStates.referenceCount(distribution)).isEqualTo(2);
+			}
+			assertThat(sharedStates.referenceCount(distribution)).isEqualTo(1);
+		}
+		assertThat(extracted.get()).isEqualTo(1);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatePoolTest {
+	private final StateID<String> server = StateID.of("server", String.class);
+
+	private final AtomicInteger started = new AtomicInteger();
+	private final AtomicInteger stopped = new AtomicInteger();
+
+	private final Set<String> threads = Collections.synchronizedSet(new LinkedHashSet<>());
+
+	private final TransitionWalker walker = Transitions.from(
+		Start.to(server).with(() -> {
+			threads.add(Thread.currentThread().getName());
+			return State.of("server#" + started.incrementAndGet(), ignore -> stopped.incrementAndGet());
+		})
+	).walker();
+
+	@Test
+	void poolIsFilledInBackgroundAndRefilledAfterTake() {
+		try (StatePool<String> pool = StatePool.of(walker, server, 2, Duration.ofMinutes(1))) {
+			await(() -> pool.idle() == 2);
+			assertThat(started.get()).isEqualTo(2);
+			assertThat(threads).isNotEmpty().allMatch(name -> name.matches("state-pool-server-\\d+"));
+
+			try (TransitionWalker.ReachedState<String> reached = pool.take()) {
+				assertThat(reached.current()).startsWith("server#");
+				await(() -> pool.idle() == 2);
+				assertThat(started.get()).isEqualTo(3);
+			}
+			assertThat(stopped.get()).isEqualTo(1);
+		}
+		assertThat(stopped.get()).isEqualTo(3);
+	}
+
+	@Test
+	void idleStatesAreTornDownAfterTimeout() {
+		try (StatePool<String> pool = StatePool.of(walker, server, 1, Duration.ofMillis(50))) {
+			await(() -> stopped.get() == 1);
+			assertThat(pool.idle()).isZero();
+
+			try (TransitionWalker.ReachedState<String> reached = pool.take()) {
+				assertThat(reached.current()).isNotEqualTo("server#1");
+			}
+		}
+	}
+
+	@Test
+	void takeFromClosedPoolMustFail() {
+		StatePool<String> pool = StatePool.of(walker, server, 1, Duration.ofMinutes(1));
+		pool.close();
+
+		assertThatThrownBy(pool::take)
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("already closed");
+	}
+
+	@Test
+	void failedInitializationIsThrownByTakeAndNotRetriedBefore() throws InterruptedException {
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicBoolean broken = new AtomicBoolean(true);
+		TransitionWalker failing = Transitions.from(
+			Start.to(server).with(() -> {
+				attempts.incrementAndGet();
+				if (broken.get()) {
+					throw new IllegalStateException("broken");
+				}
+				return State.of("server");
+			})
+		).walker();
+
+		try (StatePool<String> pool = StatePool.of(failing, server, 1, Duration.ofMinutes(1))) {
+			await(() -> attempts.get() == 1);
+			Thread.sleep(50);
+			assertThat(attempts.get()).isEqualTo(1);
+
+			assertThatThrownBy(pool::take)
+				.hasMessageContaining("could not initialize")
+				.rootCause()
+				.hasMessage("broken");
+
+			broken.set(false);
+			try (TransitionWalker.ReachedState<String> reached = pool.take()) {
+				assertThat(reached.current()).isEqualTo("server");
+			}
+		}
+	}
+
+	@Test
+	void closeWaitsForRunningInitializationAndThrowsItsTearDownError() throws InterruptedException {
+		CountDownLatch initStarted = new CountDownLatch(1);
+		CountDownLatch initReleased = new CountDownLatch(1);
+		TransitionWalker slow = Transitions.from(
+			Start.to(server).with(() -> {
+				initStarted.countDown();
+				try {
+					initReleased.await();
+				}
+				catch (InterruptedException ix) {
+					throw new RuntimeException(ix);
+				}
+				return State.of("server", ignore -> {
+					throw new RuntimeException("stop failed");
+				});
+			})
+		).walker();
+
+		StatePool<String> pool = StatePool.of(slow, server, 1, Duration.ofMinutes(1));
+		assertThat(initStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Void> closed = CompletableFuture.runAsync(pool::close);
+		Thread.sleep(50);
+		assertThat(closed).isNotDone();
+
+		initReleased.countDown();
+		assertThatThrownBy(closed::join)
+			.hasCauseInstanceOf(TearDownException.class)
+			.satisfies(ex -> assertThat(((TearDownException) ex.getCause()).getExceptions()).hasSize(1));
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).describedAs("timeout").isLessThan(timeout);
+			try {
+				Thread.sleep(5);
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ix);
+			}
+		}
+	}
+}
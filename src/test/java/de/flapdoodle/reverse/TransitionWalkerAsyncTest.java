@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.AsyncDerive;
+import de.flapdoodle.reverse.transitions.AsyncJoin;
+import de.flapdoodle.reverse.transitions.AsyncStart;
+import de.flapdoodle.reverse.transitions.Derive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransitionWalkerAsyncTest {
+	private final StateID<String> left = StateID.of("left", String.class);
+	private final StateID<String> right = StateID.of("right", String.class);
+	private final StateID<String> derived = StateID.of("derived", String.class);
+	private final StateID<String> both = StateID.of("both", String.class);
+
+	private TearDownCounter tearDownCounter;
+
+	@BeforeEach
+	void before() {
+		tearDownCounter = new TearDownCounter();
+	}
+
+	@Test
+	void asyncTransitionsAreComposedWithoutBlocking() {
+		CompletableFuture<String> leftValue = new CompletableFuture<>();
+		CompletableFuture<String> rightValue = new CompletableFuture<>();
+		List<String> reached = new ArrayList<>();
+
+		TransitionWalker walker = Transitions.from(
+			AsyncStart.to(left).with(() -> leftValue.thenApply(it -> State.of(it, tearDownCounter.listener()))),
+			AsyncStart.to(right).providedBy(() -> rightValue),
+			AsyncDerive.given(left).state(derived).deriveBy(l -> CompletableFuture.completedFuture("[" + l + "]")),
+			AsyncJoin.given(derived).and(right).state(both).with((l, r) -> CompletableFuture.completedFuture(State.of(l + " " + r, tearDownCounter.listener())))
+		).walker();
+
+		CompletableFuture<TransitionWalker.ReachedState<String>> result = walker.initStateAsync(both,
+			Listener.builder().onStateReached((id, value) -> reached.add(id.name())).build());
+
+		assertThat(result).isNotDone();
+		rightValue.complete("right");
+		assertThat(result).isNotDone();
+		leftValue.complete("left");
+
+		try (TransitionWalker.ReachedState<String> state = result.join()) {
+			assertThat(state.current()).isEqualTo("[left] right");
+		}
+
+		assertThat(reached).containsExactly("right", "left", "derived", "both");
+		tearDownCounter.assertTearDownsOrder("[left] right", "left");
+	}
+
+	@Test
+	void blockingTransitionsAreMixedWithAsyncTransitions() {
+		TransitionWalker walker = Transitions.from(
+			AsyncStart.to(left).providedBy(() -> CompletableFuture.supplyAsync(() -> "left")),
+			Derive.given(left).state(derived).deriveBy(l -> l + "+")
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initStateAsync(derived).join()) {
+			assertThat(state.current()).isEqualTo("left+");
+		}
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(derived)) {
+			assertThat(state.current()).isEqualTo("left+");
+		}
+	}
+
+	@Test
+	void failedAsyncTransitionTriggersRollback() {
+		CompletableFuture<State<String>> failing = new CompletableFuture<>();
+
+		TransitionWalker walker = Transitions.from(
+			AsyncStart.to(left).with(() -> CompletableFuture.completedFuture(State.of("left", tearDownCounter.listener()))),
+			AsyncStart.to(right).with(() -> failing),
+			AsyncJoin.given(left).and(right).state(both).deriveBy((l, r) -> CompletableFuture.completedFuture(l + r))
+		).walker();
+
+		CompletableFuture<TransitionWalker.ReachedState<String>> result = walker.initStateAsync(both);
+		failing.completeExceptionally(new RuntimeException("right failed"));
+
+		assertThatThrownBy(result::join)
+			.isInstanceOf(CompletionException.class)
+			.cause()
+			.hasMessage("rollback after error on transition to State(right:String), successful reached:\n"
+				+ "  State(left:String)=left\n")
+			.hasRootCauseMessage("right failed");
+
+		tearDownCounter.assertTearDowns("left");
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransitionWalkerExecutorTest {
+	private final StateID<String> left = StateID.of("left", String.class);
+	private final StateID<String> right = StateID.of("right", String.class);
+	private final StateID<String> both = StateID.of("both", String.class);
+
+	private TearDownCounter tearDownCounter;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void before() {
+		tearDownCounter = new TearDownCounter();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void transitionsOfOneLayerRunConcurrently() {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of(awaitOther(bothStarted, "left"), tearDownCounter.listener())),
+			Start.to(right).with(() -> State.of(awaitOther(bothStarted, "right"), tearDownCounter.listener())),
+			Join.given(left).and(right).state(both).with((l, r) -> State.of(l + " " + r, tearDownCounter.listener()))
+		).walker()
+			.withExecutor(executor);
+
+		Listener listener = Listener.builder()
+			.onStateReached((id, value) -> events.add("up " + id.name()))
+			.onTearDown((id, value) -> events.add("down " + id.name()))
+			.build();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(both, listener)) {
+			assertThat(state.current()).isEqualTo("left right");
+		}
+
+		assertThat(events.subList(0, 2)).containsExactlyInAnyOrder("up left", "up right");
+		assertThat(events.subList(2, 4)).containsExactly("up both", "down both");
+		assertThat(events.subList(4, 6)).containsExactlyInAnyOrder("down left", "down right");
+		tearDownCounter.assertTearDowns("left right", "left", "right");
+	}
+
+	@Test
+	void successfulTransitionsOfFailedLayerAreTornDown() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of("left", tearDownCounter.listener())),
+			Start.to(right).with(() -> {
+				throw new RuntimeException("right failed");
+			}),
+			Join.given(left).and(right).state(both).with((l, r) -> State.of(l + " " + r, tearDownCounter.listener()))
+		).walker()
+			.withExecutor(executor);
+
+		assertThatThrownBy(() -> walker.initState(both))
+			.isInstanceOf(RuntimeException.class)
+			.hasMessage("rollback after error on transition to State(right:String), successful reached:\n"
+				+ "  State(left:String)=left\n")
+			.hasRootCauseMessage("right failed");
+
+		tearDownCounter.assertTearDowns("left");
+	}
+
+	@Test
+	void dataflowStartsTransitionAsSoonAsItsSourcesAreReached() {
+		StateID<String> slow = StateID.of("slow", String.class);
+		StateID<String> fast = StateID.of("fast", String.class);
+		StateID<String> derived = StateID.of("derived", String.class);
+		CountDownLatch derivedReached = new CountDownLatch(1);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(slow).with(() -> State.of(awaitOther(derivedReached, "slow"), tearDownCounter.listener())),
+			Start.to(fast).with(() -> State.of("fast", tearDownCounter.listener())),
+			Derive.given(fast).state(derived).with(f -> {
+				derivedReached.countDown();
+				return State.of(f + "+", tearDownCounter.listener());
+			}),
+			Join.given(slow).and(derived).state(both).with((l, r) -> State.of(l + " " + r, tearDownCounter.listener()))
+		).walker()
+			.withDataflowExecutor(executor);
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(both)) {
+			assertThat(state.current()).isEqualTo("slow fast+");
+		}
+
+		tearDownCounter.assertTearDowns("slow fast+", "slow", "fast+", "fast");
+		assertThat(tearDownCounter.tearDowns.keySet()).first().isEqualTo("slow fast+");
+	}
+
+	@Test
+	void dataflowRollbackOnError() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of("left", tearDownCounter.listener())),
+			Derive.given(left).state(right).with(l -> {
+				throw new RuntimeException("right failed");
+			}),
+			Join.given(left).and(right).state(both).with((l, r) -> State.of(l + " " + r, tearDownCounter.listener()))
+		).walker()
+			.withDataflowExecutor(executor);
+
+		assertThatThrownBy(() -> walker.initState(both))
+			.isInstanceOf(RuntimeException.class)
+			.hasMessage("rollback after error on transition to State(right:String), successful reached:\n"
+				+ "  State(left:String)=left\n")
+			.hasRootCauseMessage("right failed");
+
+		tearDownCounter.assertTearDowns("left");
+	}
+
+	@Test
+	void independentStatesAreTornDownConcurrently() {
+		CountDownLatch bothInTearDown = new CountDownLatch(2);
+		List<String> tearDowns = Collections.synchronizedList(new ArrayList<>());
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of("left", it -> tearDowns.add(awaitOther(bothInTearDown, it)))),
+			Start.to(right).with(() -> State.of("right", it -> tearDowns.add(awaitOther(bothInTearDown, it)))),
+			Join.given(left).and(right).state(both).with((l, r) -> State.of(l + " " + r, tearDowns::add))
+		).walker()
+			.withTearDownExecutor(executor);
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(both)) {
+			assertThat(state.current()).isEqualTo("left right");
+		}
+
+		assertThat(tearDowns).hasSize(3);
+		assertThat(tearDowns.get(0)).isEqualTo("left right");
+		assertThat(tearDowns.subList(1, 3)).containsExactlyInAnyOrder("left", "right");
+	}
+
+	@Test
+	void concurrentTearDownFailuresAreCollected() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of("left", it -> {
+				throw new RuntimeException("left failed");
+			})),
+			Start.to(right).with(() -> State.of("right", it -> {
+				throw new RuntimeException("right failed");
+			})),
+			Join.given(left).and(right).state(both).deriveBy((l, r) -> l + " " + r)
+		).walker()
+			.withTearDownExecutor(executor);
+
+		TransitionWalker.ReachedState<String> state = walker.initState(both);
+
+		assertThatThrownBy(state::close)
+			.isInstanceOf(TearDownException.class)
+			.satisfies(ex -> assertThat(((TearDownException) ex).getExceptions())
+				.extracting(Throwable::getMessage)
+				.containsExactlyInAnyOrder("left failed", "right failed"));
+	}
+
+	@Test
+	void tearDownIsDoneInCallingThreadIfExecutorRejectsIt() {
+		List<String> tearDowns = Collections.synchronizedList(new ArrayList<>());
+		ExecutorService shutDown = Executors.newSingleThreadExecutor();
+		shutDown.shutdown();
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(left).with(() -> State.of("left", tearDowns::add)),
+			Start.to(right).with(() -> State.of("right", tearDowns::add)),
+			Join.given(left).and(right).state(both).with((l, r) -> State.of(l + " " + r, tearDowns::add))
+		).walker()
+			.withTearDownExecutor(shutDown);
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(both)) {
+			assertThat(state.current()).isEqualTo("left right");
+		}
+
+		assertThat(tearDowns).containsExactly("left right", "right", "left");
+	}
+
+	private static String awaitOther(CountDownLatch latch, String value) {
+		latch.countDown();
+		try {
+			assertThat(latch.await(5, TimeUnit.SECONDS))
+				.describedAs("other transition started")
+				.isTrue();
+		}
+		catch (InterruptedException ix) {
+			throw new RuntimeException(ix);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.AsyncDerive;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransitionWalkerInlinedSubGraphTest {
+	private final StateID<String> outerSource = StateID.of("source", String.class);
+	private final StateID<String> end = StateID.of("end", String.class);
+
+	private final StateID<String> innerSource = StateID.of("inner-source", String.class);
+	private final StateID<String> innerDerived = StateID.of("inner-derived", String.class);
+	private final StateID<String> innerStart = StateID.of("inner-start", String.class);
+	private final StateID<String> innerEnd = StateID.of("inner-end", String.class);
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	void before() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void innerTransitionsRunConcurrentlyWithOuterTransitions() {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(outerSource).providedBy(() -> awaitOther(bothStarted, "source")),
+			asTransition(subGraph(() -> awaitOther(bothStarted, "start")))
+		).walker()
+			.withInlinedSubGraphs()
+			.withExecutor(executor);
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(end)) {
+			assertThat(state.current()).isEqualTo("source derived start");
+		}
+	}
+
+	@Test
+	void inlinedStatesAreRenamed() {
+		Transitions transitions = Transitions.from(
+			Start.to(outerSource).initializedWith("source"),
+			asTransition(subGraph(() -> "start"))
+		);
+
+		List<String> reached = new ArrayList<>();
+		Listener listener = Listener.builder()
+			.onStateReached((id, value) -> reached.add(id.name() + "=" + value))
+			.build();
+
+		try (TransitionWalker.ReachedState<String> state = transitions.walker().initState(end, listener)) {
+			assertThat(state.current()).isEqualTo("source derived start");
+		}
+		assertThat(reached).containsExactly("source=source", "inner-start=start", "inner-derived=source derived",
+			"inner-end=source derived start", "end=source derived start");
+
+		reached.clear();
+		try (TransitionWalker.ReachedState<String> state = transitions.walker().withInlinedSubGraphs().initState(end, listener)) {
+			assertThat(state.current()).isEqualTo("source derived start");
+		}
+		assertThat(reached).containsExactlyInAnyOrder("source=source", "sub.inner-start=start", "sub.inner-derived=source derived",
+			"end=source derived start");
+	}
+
+	@Test
+	void inlinedAsyncTransitionsStayAsync() {
+		CompletableFuture<String> derived = new CompletableFuture<>();
+		TransitionWalker subGraph = Transitions.from(
+			AsyncDerive.given(innerSource).state(innerDerived).deriveBy(s -> derived.thenApply(d -> s + d)),
+			Start.to(innerStart).initializedWith("start"),
+			Join.given(innerDerived).and(innerStart).state(innerEnd).deriveBy((d, s) -> d + " " + s)
+		).walker();
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(outerSource).initializedWith("source"),
+			asTransition(subGraph)
+		).walker()
+			.withInlinedSubGraphs();
+
+		List<Transition<?>> inlined = walker.planOf(end).layers().stream()
+			.flatMap(List::stream)
+			.collect(Collectors.toList());
+		assertThat(inlined)
+			.filteredOn(it -> it.destination().name().equals("sub.inner-derived"))
+			.singleElement()
+			.isInstanceOf(AsyncTransition.class);
+		assertThat(inlined)
+			.filteredOn(it -> it instanceof RenamedTransition)
+			.allSatisfy(it -> assertThat(it.sources()).containsExactlyElementsOf(((RenamedTransition<?>) it).delegate().sources().stream()
+				.map(id -> ((RenamedTransition<?>) it).innerToOuter().get(id))
+				.collect(Collectors.toList())));
+
+		CompletableFuture<TransitionWalker.ReachedState<String>> reached = walker.initStateAsync(end);
+		assertThat(reached).isNotDone();
+
+		derived.complete(" derived");
+		try (TransitionWalker.ReachedState<String> state = reached.join()) {
+			assertThat(state.current()).isEqualTo("source derived start");
+		}
+	}
+
+	@Test
+	void lazyInnerStatesStayLazy() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(outerSource).initializedWith("source"),
+			asTransition(subGraph(() -> "start").withLazyStates(innerStart))
+		).walker()
+			.withInlinedSubGraphs();
+
+		assertThat(walker.planOf(end).lazyStates()).containsExactly(StateID.of("sub.inner-start", String.class));
+		try (TransitionWalker.ReachedState<String> state = walker.initState(end)) {
+			assertThat(state.current()).isEqualTo("source derived start");
+		}
+	}
+
+	private TransitionWalker subGraph(Supplier<String> start) {
+		return Transitions.from(
+			Derive.given(innerSource).state(innerDerived).deriveBy(it -> it + " derived"),
+			Start.to(innerStart).providedBy(start),
+			Join.given(innerDerived).and(innerStart).state(innerEnd).deriveBy((d, s) -> d + " " + s)
+		).walker();
+	}
+
+	private Transition<String> asTransition(TransitionWalker subGraph) {
+		return subGraph.asTransitionTo(TransitionMapping.builder("sub", StateMapping.of(innerEnd, end))
+			.addMappings(StateMapping.of(outerSource, innerSource))
+			.build());
+	}
+
+	private static String awaitOther(CountDownLatch latch, String value) {
+		latch.countDown();
+		try {
+			assertThat(latch.await(5, TimeUnit.SECONDS)).describedAs("other transition started").isTrue();
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+		return value;
+	}
+}
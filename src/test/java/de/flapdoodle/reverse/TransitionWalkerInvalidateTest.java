@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransitionWalkerInvalidateTest {
+	private final StateID<String> config = StateID.of("config", String.class);
+	private final StateID<String> db = StateID.of("db", String.class);
+	private final StateID<String> settings = StateID.of("settings", String.class);
+	private final StateID<String> app = StateID.of("app", String.class);
+
+	private final AtomicInteger configs = new AtomicInteger();
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	private final Listener listener = Listener.of(
+		(id, value) -> events.add("up:" + id.name()),
+		(id, value) -> events.add("down:" + id.name()));
+
+	private TransitionWalker walker(int failOnConfig) {
+		return Transitions.from(
+			Start.to(config).with(() -> {
+				int current = configs.incrementAndGet();
+				if (current == failOnConfig) {
+					throw new IllegalStateException("could not read config");
+				}
+				return State.of("config#" + current);
+			}),
+			Start.to(db).initializedWith("db"),
+			Derive.given(config).state(settings).deriveBy(c -> "settings(" + c + ")"),
+			Join.given(settings).and(db).state(app).deriveBy((s, d) -> "app(" + s + ", " + d + ")")
+		).walker();
+	}
+
+	@Test
+	void onlyInvalidatedStateAndItsDependentsAreInitializedAgain() {
+		try (TransitionWalker.ReachedState<String> reached = walker(-1).initState(app, listener)) {
+			assertThat(reached.current()).isEqualTo("app(settings(config#1), db)");
+			events.clear();
+
+			reached.invalidate(config);
+
+			assertThat(reached.current()).isEqualTo("app(settings(config#2), db)");
+			assertThat(events).containsExactly(
+				"down:app", "down:settings", "down:config",
+				"up:config", "up:settings", "up:app");
+			events.clear();
+		}
+
+		assertThat(events).containsExactlyInAnyOrder("down:app", "down:settings", "down:config", "down:db");
+		assertThat(events).startsWith("down:app");
+	}
+
+	@Test
+	void invalidateStateNotReachedByThisCallMustFail() {
+		TransitionWalker walker = walker(-1);
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(settings, listener)) {
+			try (TransitionWalker.ReachedState<String> child = reached.initState(app)) {
+				assertThatThrownBy(() -> child.invalidate(config))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessageContaining("was not reached by this call");
+			}
+		}
+	}
+
+	@Test
+	void invalidateWithOpenChildMustFail() {
+		try (TransitionWalker.ReachedState<String> reached = walker(-1).initState(settings, listener)) {
+			try (TransitionWalker.ReachedState<String> child = reached.initState(app)) {
+				assertThatThrownBy(() -> reached.invalidate(config))
+					.isInstanceOf(IllegalStateException.class)
+					.hasMessageContaining("reached with initState are still open");
+				assertThat(child.current()).isEqualTo("app(settings(config#1), db)");
+			}
+
+			reached.invalidate(config);
+			assertThat(reached.current()).isEqualTo("settings(config#2)");
+		}
+	}
+
+	@Test
+	void invalidateWithOtherOpenHandleMustFail() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).with(() -> {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ix) {
+					Thread.currentThread().interrupt();
+				}
+				return State.of("config#" + configs.incrementAndGet());
+			}),
+			Derive.given(config).state(settings).deriveBy(c -> "settings(" + c + ")")
+		).walker()
+			.withSingleFlight();
+
+		AtomicReferenceArray<TransitionWalker.ReachedState<String>> reached = new AtomicReferenceArray<>(2);
+		List<Thread> threads = Arrays.asList(
+			new Thread(() -> reached.set(0, walker.initState(settings))),
+			new Thread(() -> reached.set(1, walker.initState(settings))));
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			while (thread.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);
+			}
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(10_000);
+		}
+
+		assertThatThrownBy(() -> reached.get(0).invalidate(config))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("shared with 1 other open handle");
+		assertThat(reached.get(1).current()).isEqualTo("settings(config#1)");
+
+		reached.get(1).close();
+		reached.get(0).invalidate(config);
+		assertThat(reached.get(0).current()).isEqualTo("settings(config#2)");
+		reached.get(0).close();
+	}
+
+	@Test
+	void failedReinitializationTearsDownEverything() {
+		TransitionWalker.ReachedState<String> reached = walker(2).initState(app, listener);
+		events.clear();
+
+		assertThatThrownBy(() -> reached.invalidate(config))
+			.isInstanceOf(RuntimeException.class)
+			.hasRootCauseInstanceOf(IllegalStateException.class);
+
+		assertThat(events).containsExactly("down:app", "down:settings", "down:config", "down:db");
+
+		reached.close();
+		assertThat(events).hasSize(4);
+	}
+
+	@Test
+	void failedInvalidateOfChildReleasesItsParent() {
+		AtomicInteger settingsCount = new AtomicInteger();
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).with(() -> State.of("config#" + configs.incrementAndGet())),
+			Derive.given(config).state(settings).deriveBy(c -> {
+				if (settingsCount.incrementAndGet() == 2) {
+					throw new IllegalStateException("could not derive settings");
+				}
+				return "settings(" + c + ")";
+			})
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(config)) {
+			TransitionWalker.ReachedState<String> child = reached.initState(settings);
+
+			assertThatThrownBy(() -> child.invalidate(settings))
+				.hasRootCauseMessage("could not derive settings");
+			assertThatThrownBy(() -> child.invalidate(settings))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("already closed");
+
+			reached.invalidate(config);
+			assertThat(reached.current()).isEqualTo("config#2");
+		}
+	}
+}
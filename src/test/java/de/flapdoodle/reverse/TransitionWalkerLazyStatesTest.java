@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransitionWalkerLazyStatesTest {
+	private final StateID<String> config = StateID.of("config", String.class);
+	private final StateID<String> sidecar = StateID.of("sidecar", String.class);
+	private final StateID<String> app = StateID.of("app", String.class);
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	private final Listener listener = Listener.of(
+		(id, value) -> events.add("up:" + id.name()),
+		(id, value) -> events.add("down:" + id.name()));
+
+	@Test
+	void lazyStateIsNotInitializedIfNotAccessed() {
+		TransitionWalker walker = walker("plain").withLazyStates(sidecar);
+
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(app, listener)) {
+			assertThat(reached.current()).isEqualTo("app(plain)");
+		}
+
+		assertThat(events).containsExactly("up:config", "up:app", "down:app", "down:config");
+	}
+
+	@Test
+	void lazyStateIsInitializedOnAccessAndTornDownAfterItsConsumer() {
+		TransitionWalker walker = walker("monitored").withLazyStates(sidecar);
+
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(app, listener)) {
+			assertThat(reached.current()).isEqualTo("app(monitored, sidecar(monitored))");
+		}
+
+		assertThat(events).containsExactly("up:config", "up:sidecar", "up:app", "down:app", "down:sidecar", "down:config");
+	}
+
+	@Test
+	void withoutLazyStatesEverythingIsInitialized() {
+		try (TransitionWalker.ReachedState<String> reached = walker("plain").initState(app, listener)) {
+			assertThat(reached.current()).isEqualTo("app(plain)");
+		}
+
+		assertThat(events).containsExactly("up:config", "up:sidecar", "up:app", "down:app", "down:sidecar", "down:config");
+	}
+
+	@Test
+	void eagerDependenciesOfLazyStateAreReachedBeforeItsConsumerStarts() {
+		StateID<String> port = StateID.of("port", String.class);
+		StateID<String> result = StateID.of("result", String.class);
+		AtomicInteger ports = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			TransitionWalker walker = Transitions.from(
+				Start.to(config).initializedWith("monitored"),
+				Derive.given(config).state(port).deriveBy(c -> {
+					sleep(50);
+					return "port#" + ports.incrementAndGet();
+				}),
+				Derive.given(port).state(sidecar).deriveBy(p -> "sidecar(" + p + ")"),
+				new ConditionalAccess(config, sidecar, app),
+				Join.given(app).and(port).state(result).deriveBy((a, p) -> a + " " + p)
+			).walker()
+				.withDataflowExecutor(executor)
+				.withLazyStates(sidecar);
+
+			try (TransitionWalker.ReachedState<String> reached = walker.initState(result)) {
+				assertThat(reached.current()).isEqualTo("app(monitored, sidecar(port#1)) port#1");
+			}
+			assertThat(ports.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void lazyStateMustBePartOfTheGraph() {
+		assertThatThrownBy(() -> walker("plain").withLazyStates(StateID.of("unknown", String.class)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("is not part of this init process");
+	}
+
+	private TransitionWalker walker(String configValue) {
+		return Transitions.from(
+			Start.to(config).initializedWith(configValue),
+			Derive.given(config).state(sidecar).with(c -> State.of("sidecar(" + c + ")")),
+			new ConditionalAccess(config, sidecar, app)
+		).walker();
+	}
+
+	/**
+	 * accesses the sidecar only if the config asks for it
+	 */
+	private static class ConditionalAccess implements Transition<String> {
+		private final StateID<String> config;
+		private final StateID<String> sidecar;
+		private final StateID<String> destination;
+
+		private ConditionalAccess(StateID<String> config, StateID<String> sidecar, StateID<String> destination) {
+			this.config = config;
+			this.sidecar = sidecar;
+			this.destination = destination;
+		}
+
+		@Override
+		public StateID<String> destination() {
+			return destination;
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			return new LinkedHashSet<>(Arrays.asList(config, sidecar));
+		}
+
+		@Override
+		public State<String> result(StateLookup lookup) {
+			String current = lookup.of(config);
+			return State.of(current.equals("monitored")
+				? "app(" + current + ", " + lookup.of(sidecar) + ")"
+				: "app(" + current + ")");
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ix);
+		}
+	}
+}
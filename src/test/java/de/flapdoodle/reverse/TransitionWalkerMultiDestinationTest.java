@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransitionWalkerMultiDestinationTest {
+	private final StateID<String> base = StateID.of("base", String.class);
+	private final StateID<String> left = StateID.of("left", String.class);
+	private final StateID<Integer> right = StateID.of("right", Integer.class);
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	private final Listener listener = Listener.of(
+		(id, value) -> events.add("up:" + id.name()),
+		(id, value) -> events.add("down:" + id.name()));
+
+	@Test
+	void allDestinationsAreReachedWithOnePlan() {
+		AtomicInteger bases = new AtomicInteger();
+		TransitionWalker walker = Transitions.from(
+			Start.to(base).with(() -> State.of("base#" + bases.incrementAndGet())),
+			Derive.given(base).state(left).deriveBy(b -> "left(" + b + ")"),
+			Derive.given(base).state(right).deriveBy(String::length)
+		).walker().withExecutionLog();
+
+		try (TransitionWalker.ReachedStates reached = walker.initState(new LinkedHashSet<>(Arrays.asList(left, right)), listener)) {
+			String leftValue = reached.of(left);
+			int rightValue = reached.of(right);
+
+			assertThat(leftValue).isEqualTo("left(base#1)");
+			assertThat(rightValue).isEqualTo(6);
+			assertThat(bases.get()).isEqualTo(1);
+			assertThat(reached.executions()).hasSize(3);
+
+			assertThatThrownBy(() -> reached.of(base))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("is not a destination");
+		}
+
+		assertThat(events).containsExactlyInAnyOrder("up:base", "up:left", "up:right", "down:left", "down:right", "down:base");
+		assertThat(events).endsWith("down:base");
+	}
+
+	@Test
+	void independentDestinationsAreInitializedConcurrently() {
+		CyclicBarrier bothRunning = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			TransitionWalker walker = Transitions.from(
+				Start.to(left).with(() -> State.of("left#" + await(bothRunning))),
+				Start.to(right).with(() -> State.of(await(bothRunning)))
+			).walker()
+				.withExecutor(executor);
+
+			try (TransitionWalker.ReachedStates reached = walker.initState(new LinkedHashSet<>(Arrays.asList(left, right)))) {
+				assertThat(reached.destinations()).containsExactly(left, right);
+				assertThat(reached.of(left)).startsWith("left#");
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void emptyDestinationsMustFail() {
+		TransitionWalker walker = Transitions.from(Start.to(base).initializedWith("base")).walker();
+
+		assertThatThrownBy(() -> walker.initState(Collections.emptySet()))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("no destinations");
+	}
+
+	private static int await(CyclicBarrier barrier) {
+		try {
+			return barrier.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException | BrokenBarrierException | TimeoutException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+}
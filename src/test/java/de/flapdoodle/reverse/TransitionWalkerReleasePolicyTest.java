@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransitionWalkerReleasePolicyTest {
+	private final StateID<String> archive = StateID.of("archive", String.class);
+	private final StateID<String> extracted = StateID.of("extracted", String.class);
+	private final StateID<String> installed = StateID.of("installed", String.class);
+	private final StateID<String> server = StateID.of("server", String.class);
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	private final Listener listener = Listener.of(
+		(id, value) -> events.add("up:" + id.name()),
+		(id, value) -> events.add("down:" + id.name()));
+
+	private final TransitionWalker walker = Transitions.from(
+		Start.to(archive).initializedWith("archive"),
+		Derive.given(archive).state(extracted).deriveBy(a -> "extracted(" + a + ")"),
+		Derive.given(extracted).state(installed).deriveBy(e -> "installed(" + e + ")"),
+		Derive.given(installed).state(server).deriveBy(i -> "server(" + i + ")")
+	).walker();
+
+	@Test
+	void intermediatesAreReleasedAfterTheirLastConsumer() {
+		try (TransitionWalker.ReachedState<String> reached = walker.withReleasePolicy(ReleasePolicy.intermediates())
+			.initState(server, listener)) {
+
+			assertThat(reached.current()).isEqualTo("server(installed(extracted(archive)))");
+			assertThat(events).containsExactly(
+				"up:archive", "up:extracted", "down:archive", "up:installed", "down:extracted", "up:server", "down:installed");
+		}
+		assertThat(events).endsWith("down:server");
+	}
+
+	@Test
+	void onlySelectedStatesAreReleased() {
+		try (TransitionWalker.ReachedState<String> reached = walker.withReleasePolicy(ReleasePolicy.of(archive))
+			.initState(server, listener)) {
+
+			assertThat(reached.current()).isEqualTo("server(installed(extracted(archive)))");
+			assertThat(events).containsExactly("up:archive", "up:extracted", "down:archive", "up:installed", "up:server");
+		}
+		assertThat(events).endsWith("down:server", "down:installed", "down:extracted");
+	}
+
+	@Test
+	void releasedStateIsInitializedAgainIfNeededLater() {
+		StateID<String> checksum = StateID.of("checksum", String.class);
+		TransitionWalker walker = Transitions.from(
+			Start.to(archive).initializedWith("archive"),
+			Derive.given(archive).state(extracted).deriveBy(a -> "extracted(" + a + ")"),
+			Derive.given(archive).state(checksum).deriveBy(a -> "checksum(" + a + ")")
+		).walker()
+			.withReleasePolicy(ReleasePolicy.intermediates());
+
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(extracted, listener)) {
+			try (TransitionWalker.ReachedState<String> child = reached.initState(checksum)) {
+				assertThat(child.current()).isEqualTo("checksum(archive)");
+			}
+		}
+
+		assertThat(events).containsExactly(
+			"up:archive", "up:extracted", "down:archive",
+			"up:archive", "up:checksum", "down:archive",
+			"down:checksum", "down:extracted");
+	}
+
+	@Test
+	void sharedSourceIsReleasedAfterAllConsumersWithDataflowExecutor() {
+		StateID<String> left = StateID.of("left", String.class);
+		StateID<String> right = StateID.of("right", String.class);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			TransitionWalker walker = Transitions.from(
+				Start.to(archive).initializedWith("archive"),
+				Derive.given(archive).state(left).deriveBy(a -> "left(" + a + ")"),
+				Derive.given(archive).state(right).deriveBy(a -> {
+					sleep(20);
+					return "right(" + a + ")";
+				}),
+				Join.given(left).and(right).state(server).deriveBy((l, r) -> l + " " + r)
+			).walker()
+				.withDataflowExecutor(executor)
+				.withReleasePolicy(ReleasePolicy.intermediates());
+
+			try (TransitionWalker.ReachedState<String> reached = walker.initState(server, listener)) {
+				assertThat(reached.current()).isEqualTo("left(archive) right(archive)");
+				assertThat(events.indexOf("down:archive"))
+					.isGreaterThan(events.indexOf("up:left"))
+					.isGreaterThan(events.indexOf("up:right"));
+				assertThat(events).contains("down:left", "down:right");
+			}
+			assertThat(events).endsWith("down:server");
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ix);
+		}
+	}
+}
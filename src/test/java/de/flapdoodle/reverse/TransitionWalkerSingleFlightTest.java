@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransitionWalkerSingleFlightTest {
+	private final StateID<String> server = StateID.of("server", String.class);
+	private final StateID<String> client = StateID.of("client", String.class);
+
+	@Test
+	void concurrentCallsJoinRunningInitialization() throws InterruptedException {
+		AtomicInteger started = new AtomicInteger();
+		AtomicInteger stopped = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(server).with(() -> {
+				await(release);
+				return State.of("server#" + started.incrementAndGet(), ignore -> stopped.incrementAndGet());
+			}),
+			Derive.given(server).state(client).deriveBy(s -> s + " client")
+		).walker()
+			.withSingleFlight();
+
+		int calls = 5;
+		AtomicReferenceArray<TransitionWalker.ReachedState<String>> reached = new AtomicReferenceArray<>(calls);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < calls; i++) {
+			int index = i;
+			threads.add(new Thread(() -> reached.set(index, walker.initState(client))));
+		}
+		threads.forEach(Thread::start);
+
+		// the first call waits for the latch, all others wait for the first
+		for (Thread thread : threads) {
+			while (thread.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);
+			}
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(10_000);
+		}
+
+		assertThat(started.get()).isEqualTo(1);
+		for (int i = 0; i < calls; i++) {
+			assertThat(reached.get(i).current()).isEqualTo("server#1 client");
+		}
+
+		for (int i = 0; i < calls - 1; i++) {
+			reached.get(i).close();
+			reached.get(i).close();
+		}
+		assertThat(stopped.get()).isZero();
+
+		reached.get(calls - 1).close();
+		assertThat(stopped.get()).isEqualTo(1);
+
+		try (TransitionWalker.ReachedState<String> again = walker.initState(server)) {
+			assertThat(again.current()).isEqualTo("server#2");
+		}
+	}
+
+	@Test
+	void callsWithDifferentReachedStatesDoNotJoin() {
+		AtomicInteger clients = new AtomicInteger();
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(server).initializedWith("server"),
+			Derive.given(server).state(client).deriveBy(s -> s + " client#" + clients.incrementAndGet())
+		).walker()
+			.withSingleFlight();
+
+		try (TransitionWalker.ReachedState<String> first = walker.initState(server);
+			 TransitionWalker.ReachedState<String> second = walker.initState(server)) {
+			try (TransitionWalker.ReachedState<String> firstClient = first.initState(client);
+				 TransitionWalker.ReachedState<String> secondClient = second.initState(client)) {
+				assertThat(firstClient.current()).isEqualTo("server client#1");
+				assertThat(secondClient.current()).isEqualTo("server client#2");
+			}
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
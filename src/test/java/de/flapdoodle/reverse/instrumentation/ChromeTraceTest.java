@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.*;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChromeTraceTest {
+
+	@Test
+	void subWalkerSpansAreNestedInMappedTransition(@TempDir Path tempDir) throws IOException {
+		TransitionWalker inner = Transitions.from(
+			Derive.of(StateID.of("inner", String.class), StateID.of("inner-bridge", String.class), s -> State.of(s + " world"))
+		).walker();
+
+		Transition<String> mapped = inner.asTransitionTo(TransitionMapping
+			.builder("wrapped", StateMapping.of(StateID.of("inner-bridge", String.class), StateID.of("bridge", String.class)))
+			.addMappings(StateMapping.of(StateID.of(String.class), StateID.of("inner", String.class)))
+			.build());
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(String.class).initializedWith("hello"),
+			mapped
+		).walker();
+
+		ChromeTrace trace = new ChromeTrace();
+		try (TransitionWalker.ReachedState<String> state = walker.initState(StateID.of("bridge", String.class), trace)) {
+			assertThat(state.current()).isEqualTo("hello world");
+		}
+
+		Map<String, Execution> transitions = trace.executions().stream()
+			.filter(it -> it.phase() == Execution.Phase.TRANSITION)
+			.collect(Collectors.toMap(it -> it.state().name(), Function.identity()));
+
+		assertThat(transitions).containsOnlyKeys("", "bridge", "inner-bridge");
+		Execution outer = transitions.get("bridge");
+		Execution nested = transitions.get("inner-bridge");
+		assertThat(nested.thread()).isEqualTo(outer.thread());
+		assertThat(nested.startNanos()).isGreaterThanOrEqualTo(outer.startNanos());
+		assertThat(nested.endNanos()).isLessThanOrEqualTo(outer.endNanos());
+
+		Path file = tempDir.resolve("trace.json");
+		trace.writeTo(file);
+
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertThat(json)
+			.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[")
+			.contains("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,")
+			.contains("{\"name\":\"bridge\",\"cat\":\"transition\",\"ph\":\"X\",\"pid\":1,\"tid\":1,")
+			.contains("{\"name\":\"inner-bridge\",\"cat\":\"transition\",")
+			.contains("\"cat\":\"tearDown\"");
+		assertThat(json.indexOf("\"name\":\"bridge\"")).isLessThan(json.indexOf("\"name\":\"inner-bridge\""));
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Join;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CriticalPathTest {
+	private final StateID<String> start = StateID.of("start", String.class);
+	private final StateID<String> slow = StateID.of("slow", String.class);
+	private final StateID<String> fast = StateID.of("fast", String.class);
+	private final StateID<String> both = StateID.of("both", String.class);
+
+	@Test
+	void slowestChainIsTheCriticalPath() {
+		List<Transition<?>> transitions = Arrays.asList(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(slow).deriveBy(s -> "slow"),
+			Derive.given(start).state(fast).deriveBy(s -> "fast"),
+			Join.given(slow).and(fast).state(both).deriveBy((s, f) -> s + " " + f)
+		);
+
+		CriticalPath criticalPath = CriticalPath.of(transitions, Arrays.asList(
+			transition(start, 0, 10),
+			transition(slow, 10, 50),
+			transition(fast, 10, 11),
+			transition(both, 50, 55),
+			Execution.of(Execution.Phase.TEAR_DOWN, both, "main", 60, 100, Optional.empty())
+		));
+
+		assertThat(criticalPath.steps()).hasSize(4);
+		assertThat(criticalPath.path().stream().map(it -> it.transition().destination().name()).collect(Collectors.toList()))
+			.containsExactly("start", "slow", "both");
+		assertThat(criticalPath.lengthNanos()).isEqualTo(millis(55));
+
+		CriticalPath.Step fastStep = criticalPath.steps().stream()
+			.filter(it -> it.transition().destination().equals(fast))
+			.findFirst().get();
+		assertThat(fastStep.critical()).isFalse();
+		assertThat(fastStep.earliestFinishNanos()).isEqualTo(millis(11));
+		assertThat(fastStep.slackNanos()).isEqualTo(millis(39));
+		assertThat(fastStep.criticalSource()).contains(start);
+
+		criticalPath.path().forEach(step -> assertThat(step.slackNanos()).isZero());
+
+		assertThat(criticalPath.asText())
+			.isEqualTo("critical path: 55.000ms\n"
+				+ "  Start -> State(start:String) 10.000ms\n"
+				+ "  Derive -> State(slow:String) 40.000ms\n"
+				+ "  Join -> State(both:String) 5.000ms\n"
+				+ "slack:\n"
+				+ "  Derive -> State(fast:String) 1.000ms, slack 39.000ms\n");
+		assertThat(criticalPath.asDot("critical"))
+			.contains("color=\"red\"")
+			.contains("slack 39.000ms");
+	}
+
+	@Test
+	void failedExecutionsAreIgnored() {
+		List<Transition<?>> transitions = Arrays.asList(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(slow).deriveBy(s -> "slow")
+		);
+
+		CriticalPath criticalPath = CriticalPath.of(transitions, Arrays.asList(
+			transition(start, 0, 10),
+			Execution.of(Execution.Phase.TRANSITION, slow, "main", 10, 50, Optional.of(new RuntimeException("failed")))
+		));
+
+		assertThat(criticalPath.path().stream().map(it -> it.transition().destination().name()).collect(Collectors.toList()))
+			.containsExactly("start");
+		assertThat(criticalPath.lengthNanos()).isEqualTo(millis(10));
+	}
+
+	@Test
+	void statesReachedBeforeAreNotPartOfThePath() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(slow).deriveBy(s -> "slow")
+		).walker().withExecutionLog();
+
+		try (TransitionWalker.ReachedState<String> started = walker.initState(start)) {
+			try (TransitionWalker.ReachedState<String> derived = started.initState(slow)) {
+				assertThat(derived.criticalPath().path().stream().map(it -> it.transition().destination().name()).collect(Collectors.toList()))
+					.containsExactly("slow");
+			}
+		}
+	}
+
+	@Test
+	void executionsAreOnlyRecordedIfEnabled() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(start).initializedWith("start")
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(start)) {
+			assertThatThrownBy(state::criticalPath)
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("withExecutionLog");
+		}
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(start, new LatencyHistograms())) {
+			assertThat(state.executions()).hasSize(1);
+		}
+	}
+
+	private static Execution transition(StateID<?> state, long startMillis, long endMillis) {
+		return Execution.of(Execution.Phase.TRANSITION, state, "main", millis(startMillis), millis(endMillis), Optional.empty());
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
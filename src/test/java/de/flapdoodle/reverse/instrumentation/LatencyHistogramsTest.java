@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.instrumentation;
+
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LatencyHistogramsTest {
+	private final StateID<String> start = StateID.of("start", String.class);
+	private final StateID<String> derived = StateID.of("derived", String.class);
+
+	@Test
+	void transitionsAndTearDownsAreRecordedPerState() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(derived).with(s -> State.of(s + "+", ignore -> sleep(5)))
+		).walker();
+
+		LatencyHistograms histograms = new LatencyHistograms();
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		Instrumentation hooks = new Instrumentation() {
+			@Override
+			public void onStart(Execution.Phase phase, StateID<?> state, long startNanos) {
+				events.add("start " + phase + " " + state.name());
+			}
+
+			@Override
+			public void onEnd(Execution execution) {
+				events.add("end " + execution.phase() + " " + execution.state().name());
+			}
+		};
+
+		for (int i = 0; i < 3; i++) {
+			try (TransitionWalker.ReachedState<String> state = walker.initState(derived, histograms, hooks)) {
+				assertThat(state.current()).isEqualTo("start+");
+			}
+		}
+
+		assertThat(events).startsWith(
+			"start TRANSITION start", "end TRANSITION start",
+			"start TRANSITION derived", "end TRANSITION derived",
+			"start TEAR_DOWN derived", "end TEAR_DOWN derived",
+			"start TEAR_DOWN start", "end TEAR_DOWN start"
+		);
+
+		assertThat(histograms.transitions()).containsOnlyKeys(start, derived);
+		assertThat(histograms.transitionOf(derived).get().count()).isEqualTo(3);
+		assertThat(histograms.tearDownOf(derived).get().minNanos()).isGreaterThanOrEqualTo(5_000_000L);
+		assertThat(histograms.tearDownOf(start).get().failures()).isZero();
+	}
+
+	@Test
+	void failedTransitionIsRecordedAsFailure() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(start).initializedWith("start"),
+			Derive.given(start).state(derived).with(s -> {
+				throw new RuntimeException("failed");
+			})
+		).walker();
+
+		LatencyHistograms histograms = new LatencyHistograms();
+
+		assertThatThrownBy(() -> walker.initState(derived, histograms))
+			.isInstanceOf(RuntimeException.class);
+
+		assertThat(histograms.transitionOf(derived).get().failures()).isEqualTo(1);
+		assertThat(histograms.transitionOf(start).get().failures()).isZero();
+		assertThat(histograms.tearDownOf(start).get().count()).isEqualTo(1);
+	}
+
+	@Test
+	void percentilesAreUpperBoundsOfPowerOfTwoBuckets() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 10L, false);
+		}
+
+		assertThat(histogram.count()).isEqualTo(100);
+		assertThat(histogram.minNanos()).isEqualTo(10L);
+		assertThat(histogram.maxNanos()).isEqualTo(1000L);
+		assertThat(histogram.meanNanos()).isEqualTo(505L);
+		assertThat(histogram.percentileNanos(0.5)).isEqualTo(511L);
+		assertThat(histogram.percentileNanos(1.0)).isEqualTo(1000L);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Join3To8Test {
+	private final StateID<String> dest = StateID.of("dest", String.class);
+
+	@Test
+	public void fluentApiMustMapAttributes() {
+		List<Join3<Integer, Boolean, Long, String>> variants = Arrays.asList(
+			Join.given(Integer.class).and(Boolean.class).and(Long.class).state(String.class).deriveBy((a, b, c) -> a + ":" + b + ":" + c),
+			Join.given(Integer.class).and(Boolean.class).and(Long.class).state(String.class).with((a, b, c) -> State.of(a + ":" + b + ":" + c))
+		);
+
+		assertThat(variants).allSatisfy(it -> {
+			assertThat(it.first()).isEqualTo(StateID.of(Integer.class));
+			assertThat(it.second()).isEqualTo(StateID.of(Boolean.class));
+			assertThat(it.third()).isEqualTo(StateID.of(Long.class));
+			assertThat(it.destination()).isEqualTo(StateID.of(String.class));
+			assertThat(it.sources()).containsExactlyInAnyOrder(StateID.of(Integer.class), StateID.of(Boolean.class), StateID.of(Long.class));
+			assertThat(it.action().apply(1, true, 2L)).isEqualTo(State.of("1:true:2"));
+		});
+	}
+
+	@Test
+	public void fourSourcesAreJoinedInOneTransition() {
+		Join4<String, String, String, String, String> join = Join.given(source(1)).and(source(2)).and(source(3)).and(source(4))
+			.state(dest)
+			.deriveBy((a, b, c, d) -> a + b + c + d);
+
+		assertThat(Arrays.asList(join.first(), join.second(), join.third(), join.fourth())).isEqualTo(sources(4));
+		assertThat(join.sources()).containsExactlyInAnyOrderElementsOf(sources(4));
+		assertThat(join.destination()).isEqualTo(dest);
+		assertThat(valueOf(join, 4)).isEqualTo("abcd");
+	}
+
+	@Test
+	public void fiveSourcesAreJoinedInOneTransition() {
+		Join5<String, String, String, String, String, String> join = Join.given(source(1)).and(source(2)).and(source(3)).and(source(4))
+			.and(source(5))
+			.state(dest)
+			.with((a, b, c, d, e) -> State.of(a + b + c + d + e));
+
+		assertThat(Arrays.asList(join.first(), join.second(), join.third(), join.fourth(), join.fifth())).isEqualTo(sources(5));
+		assertThat(join.sources()).containsExactlyInAnyOrderElementsOf(sources(5));
+		assertThat(join.destination()).isEqualTo(dest);
+		assertThat(valueOf(join, 5)).isEqualTo("abcde");
+	}
+
+	@Test
+	public void sixSourcesAreJoinedInOneTransition() {
+		Join6<String, String, String, String, String, String, String> join = Join.given(source(1)).and(source(2)).and(source(3)).and(source(4))
+			.and(source(5)).and(source(6))
+			.state(dest)
+			.deriveBy((a, b, c, d, e, f) -> a + b + c + d + e + f);
+
+		assertThat(Arrays.asList(join.first(), join.second(), join.third(), join.fourth(), join.fifth(), join.sixth())).isEqualTo(sources(6));
+		assertThat(join.sources()).containsExactlyInAnyOrderElementsOf(sources(6));
+		assertThat(join.destination()).isEqualTo(dest);
+		assertThat(valueOf(join, 6)).isEqualTo("abcdef");
+	}
+
+	@Test
+	public void sevenSourcesAreJoinedInOneTransition() {
+		Join7<String, String, String, String, String, String, String, String> join = Join.given(source(1)).and(source(2)).and(source(3)).and(source(4))
+			.and(source(5)).and(source(6)).and(source(7))
+			.state(dest)
+			.with((a, b, c, d, e, f, g) -> State.of(a + b + c + d + e + f + g));
+
+		assertThat(Arrays.asList(join.first(), join.second(), join.third(), join.fourth(), join.fifth(), join.sixth(), join.seventh()))
+			.isEqualTo(sources(7));
+		assertThat(join.sources()).containsExactlyInAnyOrderElementsOf(sources(7));
+		assertThat(join.destination()).isEqualTo(dest);
+		assertThat(valueOf(join, 7)).isEqualTo("abcdefg");
+	}
+
+	@Test
+	public void eightSourcesAreJoinedInOneTransition() {
+		Join8<String, String, String, String, String, String, String, String, String> join = Join.given(source(1)).and(source(2))
+			.and(source(3)).and(source(4)).and(source(5)).and(source(6)).and(source(7)).and(source(8))
+			.state(dest)
+			.deriveBy((a, b, c, d, e, f, g, h) -> a + b + c + d + e + f + g + h);
+
+		assertThat(Arrays.asList(join.first(), join.second(), join.third(), join.fourth(), join.fifth(), join.sixth(), join.seventh(),
+			join.eighth())).isEqualTo(sources(8));
+		assertThat(valueOf(join, 8)).isEqualTo("abcdefgh");
+	}
+
+	/**
+	 * one start transition for each source, so the execution log shows that the join was executed once
+	 */
+	private String valueOf(Transition<String> join, int sourceCount) {
+		List<Transition<?>> transitions = new ArrayList<>();
+		for (int i = 1; i <= sourceCount; i++) {
+			transitions.add(Start.to(source(i)).initializedWith(String.valueOf((char) ('a' + i - 1))));
+		}
+		transitions.add(join);
+
+		TransitionWalker walker = TransitionWalker.with(transitions).withExecutionLog();
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(dest)) {
+			assertThat(reached.executions()).hasSize(sourceCount + 1);
+			return reached.current();
+		}
+	}
+
+	private static StateID<String> source(int index) {
+		return StateID.of("s" + index, String.class);
+	}
+
+	private static List<StateID<String>> sources(int count) {
+		return IntStream.rangeClosed(1, count)
+			.mapToObj(Join3To8Test::source)
+			.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JoinAllTest {
+	private final StateID<String> host = StateID.of("host", String.class);
+	private final StateID<Integer> port = StateID.of("port", Integer.class);
+	private final StateID<String> other = StateID.of("other", String.class);
+	private final StateID<String> url = StateID.of("url", String.class);
+
+	@Test
+	public void actionCanOnlyLookupSources() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(host).initializedWith("localhost"),
+			Start.to(port).initializedWith(8080),
+			Start.to(other).initializedWith("other"),
+			JoinAll.given(host, port).state(url).deriveBy(lookup -> "http://" + lookup.of(host) + ":" + lookup.of(port)),
+			JoinAll.given(host).state(StateID.of("broken", String.class)).deriveBy(lookup -> lookup.of(other))
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> reached = walker.initState(url)) {
+			assertThat(reached.current()).isEqualTo("http://localhost:8080");
+		}
+
+		assertThatThrownBy(() -> walker.initState(StateID.of("broken", String.class)))
+			.rootCause().hasMessageStartingWith("stateID not allowed");
+	}
+
+	@Test
+	public void sourcesMustNotBeEmpty() {
+		assertThatThrownBy(() -> JoinAll.given(Collections.emptySet()).state(url).deriveBy(lookup -> "url"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("no sources");
+	}
+}
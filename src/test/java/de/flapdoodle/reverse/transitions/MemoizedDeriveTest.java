@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemoizedDeriveTest {
+	private final StateID<String> source = StateID.of("source", String.class);
+	private final StateID<String> destination = StateID.of("destination", String.class);
+
+	@Test
+	void cachedResultSkipsAction(@TempDir Path cacheDir) throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++) {
+			// a new cache instance for each run, like a new jvm
+			DiskCache cache = DiskCache.of(cacheDir, 1024 * 1024);
+			assertThat(valueOf(cache, "input", calls)).isEqualTo("[input]");
+		}
+		assertThat(calls.get()).isEqualTo(1);
+
+		assertThat(valueOf(DiskCache.of(cacheDir, 1024 * 1024), "other", calls)).isEqualTo("[other]");
+		assertThat(calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	void keyFunctionDecidesWhatIsTheSameInput(@TempDir Path cacheDir) throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		DiskCache cache = DiskCache.of(cacheDir, 1024 * 1024);
+
+		TransitionWalker walker = Transitions.from(
+			Start.to(source).initializedWith("input"),
+			MemoizedDerive.given(source).state(destination)
+				.cachedIn(cache, DiskCache.Codec.utf8())
+				.keyedBy(s -> s.substring(0, 2))
+				.deriveBy(s -> "[" + s + "#" + calls.incrementAndGet() + "]")
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(destination)) {
+			assertThat(state.current()).isEqualTo("[input#1]");
+		}
+		try (TransitionWalker.ReachedState<String> state = walker.initState(destination)) {
+			assertThat(state.current()).isEqualTo("[input#1]");
+		}
+	}
+
+	@Test
+	void leastRecentlyUsedEntriesAreEvicted(@TempDir Path cacheDir) throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		// each access is ten seconds later, so that file systems with a coarse modification time can keep the order
+		AtomicLong now = new AtomicLong(1_600_000_000_000L);
+		DiskCache cache = DiskCache.of(cacheDir, 30, () -> now.addAndGet(10_000));
+
+		valueOf(cache, "aaaaaaaa", calls);
+		valueOf(cache, "bbbbbbbb", calls);
+		valueOf(cache, "aaaaaaaa", calls);
+		valueOf(cache, "cccccccc", calls);
+		assertThat(calls.get()).isEqualTo(3);
+		assertThat(entriesIn(cacheDir)).isEqualTo(3);
+
+		valueOf(cache, "dddddddd", calls);
+		assertThat(entriesIn(cacheDir)).isEqualTo(3);
+
+		valueOf(cache, "aaaaaaaa", calls);
+		assertThat(calls.get()).isEqualTo(4);
+		valueOf(cache, "bbbbbbbb", calls);
+		assertThat(calls.get()).isEqualTo(5);
+	}
+
+	private String valueOf(DiskCache cache, String input, AtomicInteger calls) {
+		TransitionWalker walker = Transitions.from(
+			Start.to(source).initializedWith(input),
+			MemoizedDerive.given(source).state(destination)
+				.cachedIn(cache, DiskCache.Codec.utf8())
+				.keyedBy(Function.identity())
+				.deriveBy(s -> {
+					calls.incrementAndGet();
+					return "[" + s + "]";
+				})
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> state = walker.initState(destination)) {
+			return state.current();
+		}
+	}
+
+	private static long entriesIn(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+}
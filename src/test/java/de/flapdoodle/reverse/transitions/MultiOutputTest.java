@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse.transitions;
+
+import de.flapdoodle.reverse.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultiOutputTest {
+	private final StateID<String> config = StateID.of("config", String.class);
+	private final StateID<String> host = StateID.of("host", String.class);
+	private final StateID<Integer> port = StateID.of("port", Integer.class);
+	private final StateID<String> client = StateID.of("client", String.class);
+	private final StateID<String> url = StateID.of("url", String.class);
+
+	private final AtomicInteger started = new AtomicInteger();
+	private final List<String> tearDowns = new ArrayList<>();
+
+	private final MultiOutput server = MultiOutput.given(config)
+		.outputs(host, port, client)
+		.with(lookup -> {
+			started.incrementAndGet();
+			return Outputs.builder()
+				.put(host, State.of("localhost", ignore -> tearDowns.add("server stopped")))
+				.put(port, 8080)
+				.put(client, State.of("client(" + lookup.of(config) + ")", ignore -> tearDowns.add("client closed")))
+				.build();
+		});
+
+	@Test
+	public void oneExecutionReachesAllOutputs() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).initializedWith("config"),
+			server,
+			Join.given(host).and(port).state(url).deriveBy((h, p) -> "http://" + h + ":" + p)
+		).walker();
+
+		try (TransitionWalker.ReachedStates reached = walker.initState(new LinkedHashSet<>(Arrays.asList(url, client)))) {
+			assertThat(reached.of(url)).isEqualTo("http://localhost:8080");
+			assertThat(reached.of(client)).isEqualTo("client(config)");
+			assertThat(started.get()).isEqualTo(1);
+			assertThat(tearDowns).isEmpty();
+		}
+
+		assertThat(tearDowns).containsExactlyInAnyOrder("client closed", "server stopped");
+	}
+
+	@Test
+	public void eachOutputIsTornDownOnItsOwn() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).initializedWith("config"),
+			server
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> reachedHost = walker.initState(host)) {
+			try (TransitionWalker.ReachedState<String> reachedClient = reachedHost.initState(client)) {
+				assertThat(reachedClient.current()).isEqualTo("client(config)");
+			}
+			assertThat(tearDowns).containsExactly("client closed");
+			assertThat(started.get()).isEqualTo(1);
+		}
+		assertThat(tearDowns).containsExactly("client closed", "server stopped");
+	}
+
+	@Test
+	public void outputReachedAgainFromSameParentExecutesTransitionAgain() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).initializedWith("config"),
+			server
+		).walker();
+
+		try (TransitionWalker.ReachedState<String> reachedHost = walker.initState(host)) {
+			try (TransitionWalker.ReachedState<String> first = reachedHost.initState(client)) {
+				try (TransitionWalker.ReachedState<String> second = reachedHost.initState(client)) {
+					assertThat(first.current()).isEqualTo("client(config)");
+					assertThat(second.current()).isEqualTo("client(config)");
+					assertThat(started.get()).isEqualTo(2);
+				}
+				assertThat(tearDowns).containsExactly("client closed", "server stopped");
+			}
+			assertThat(tearDowns).containsExactly("client closed", "server stopped", "client closed");
+
+			try (TransitionWalker.ReachedState<String> again = reachedHost.initState(client)) {
+				assertThat(again.current()).isEqualTo("client(config)");
+				assertThat(started.get()).isEqualTo(3);
+			}
+		}
+		assertThat(tearDowns).containsExactly("client closed", "server stopped", "client closed",
+			"client closed", "server stopped", "server stopped");
+	}
+
+	@Test
+	public void outputsAreKeptIfOutputsAreReleasedEarly() {
+		TransitionWalker walker = Transitions.from(
+			Start.to(config).initializedWith("config"),
+			server,
+			Join.given(host).and(port).state(url).deriveBy((h, p) -> "http://" + h + ":" + p)
+		).walker()
+			.withReleasePolicy(ReleasePolicy.of(MultiOutputTransition.destinationOf(server.outputs())));
+
+		try (TransitionWalker.ReachedStates reached = walker.initState(new LinkedHashSet<>(Arrays.asList(url, host)))) {
+			// the client was never needed, so it is torn down with the released outputs
+			assertThat(tearDowns).containsExactly("client closed");
+			assertThat(reached.of(url)).isEqualTo("http://localhost:8080");
+			assertThat(reached.of(host)).isEqualTo("localhost");
+		}
+		assertThat(tearDowns).containsExactly("client closed", "server stopped");
+	}
+
+	@Test
+	public void outputsCollideWithOtherDestinations() {
+		assertThatThrownBy(() -> Transitions.from(server, Start.to(port).initializedWith(1)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("multiple transitions with same destination")
+			.hasMessageContaining("port");
+
+		MultiOutput other = MultiOutput.given().outputs(client).with(lookup -> Outputs.builder().put(client, "other").build());
+		assertThatThrownBy(() -> TransitionWalker.with(Arrays.asList(server, other)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("client");
+	}
+
+	@Test
+	public void outputsMustMatchDeclaredOutputs() {
+		TransitionWalker walker = Transitions.from(
+			MultiOutput.given().outputs(host, port).with(lookup -> Outputs.builder()
+				.put(host, State.of("localhost", ignore -> tearDowns.add("server stopped")))
+				.build())
+		).walker();
+
+		assertThatThrownBy(() -> walker.initState(host))
+			.rootCause()
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("outputs do not match");
+		assertThat(tearDowns).containsExactly("server stopped");
+	}
+}
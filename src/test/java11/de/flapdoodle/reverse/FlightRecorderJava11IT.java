@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016
+ *   Michael Mosmann <michael@mosmann.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.reverse;
+
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * runs with the classes of src/main/java11, see the multi-release profile
+ */
+class FlightRecorderJava11IT {
+	private final StateID<String> start = StateID.of("start", String.class);
+	private final StateID<String> derived = StateID.of("derived", String.class);
+
+	@Test
+	void walkerEventsAreRecorded(@TempDir Path tempDir) throws IOException {
+		Path dump = tempDir.resolve("walker.jfr");
+
+		try (Recording recording = new Recording()) {
+			recording.enable("de.flapdoodle.reverse.WalkerConstruction");
+			recording.enable("de.flapdoodle.reverse.Planning");
+			recording.enable("de.flapdoodle.reverse.Transition");
+			recording.enable("de.flapdoodle.reverse.TearDown");
+			recording.start();
+
+			TransitionWalker walker = Transitions.from(
+				Start.to(start).initializedWith("start"),
+				Derive.given(start).state(derived).deriveBy(s -> s + " derived")
+			).walker();
+
+			try (TransitionWalker.ReachedState<String> state = walker.initState(derived)) {
+				assertThat(state.current()).isEqualTo("start derived");
+			}
+
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+		assertThat(eventsNamed(events, "de.flapdoodle.reverse.WalkerConstruction"))
+			.extracting(it -> it.getInt("transitions"))
+			.containsExactly(2);
+		assertThat(eventsNamed(events, "de.flapdoodle.reverse.Planning"))
+			.extracting(it -> it.getString("destination"))
+			.containsExactly(StateID.asLabel(derived));
+		assertThat(eventsNamed(events, "de.flapdoodle.reverse.Transition"))
+			.extracting(it -> it.getString("destination"))
+			.containsExactly(StateID.asLabel(start), StateID.asLabel(derived));
+		assertThat(eventsNamed(events, "de.flapdoodle.reverse.Transition"))
+			.extracting(it -> it.getBoolean("failed"))
+			.containsOnly(false);
+		assertThat(eventsNamed(events, "de.flapdoodle.reverse.TearDown"))
+			.extracting(it -> it.getString("state"))
+			.containsExactly(StateID.asLabel(derived), StateID.asLabel(start));
+	}
+
+	private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+		return events.stream()
+			.filter(it -> it.getEventType().getName().equals(name))
+			.sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+			.collect(Collectors.toList());
+	}
+}